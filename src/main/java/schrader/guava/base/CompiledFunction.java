@@ -0,0 +1,38 @@
+package schrader.guava.base;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A function whose whole composition chain has been combined into a single {@link MethodHandle};
+ * the counterpart of {@link CompiledPredicate}. Being a Guava {@link Function}, it is a
+ * {@link java.util.function.Function} as well.
+ *
+ * @see CompiledFunctions
+ */
+public final class CompiledFunction<F, T> implements Function<F, T> {
+
+    /**
+     * Type {@code (Object)Object}.
+     */
+    final MethodHandle handle;
+
+    CompiledFunction(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public T apply(@Nullable F input) {
+        try {
+            return (T) handle.invokeExact((Object) input);
+        } catch (Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package schrader.guava.base;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counterparts of the {@link Functions} factories that build {@link CompiledFunction}s.
+ * <p>
+ * Composing compiled functions chains their method handles into a single handle; any other
+ * {@link Function} becomes a link of the chain.
+ */
+public final class CompiledFunctions {
+
+    private static final MethodHandle APPLY;
+    private static final MethodHandle BOX_BOOLEAN;
+
+    static {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            APPLY = lookup.findVirtual(Function.class, "apply", MethodType.methodType(Object.class, Object.class));
+            BOX_BOOLEAN = lookup.findStatic(Boolean.class, "valueOf", MethodType.methodType(Boolean.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CompiledFunctions() {
+    }
+
+    /**
+     * Wraps an arbitrary function as a single link.
+     */
+    public static <F, T> CompiledFunction<F, T> of(Function<? super F, ? extends T> function) {
+        return new CompiledFunction<>(handleOf(function));
+    }
+
+    public static <E> CompiledFunction<E, E> identity() {
+        return new CompiledFunction<>(MethodHandles.identity(Object.class));
+    }
+
+    /**
+     * Returns {@code g(f(a))}, like {@link Functions#compose(Function, Function)}.
+     */
+    public static <A, B, C> CompiledFunction<A, C> compose(Function<B, C> g, Function<A, ? extends B> f) {
+        return new CompiledFunction<>(MethodHandles.filterReturnValue(handleOf(f), handleOf(g)));
+    }
+
+    public static <T> CompiledFunction<T, Boolean> forPredicate(Predicate<T> predicate) {
+        return new CompiledFunction<>(MethodHandles.filterReturnValue(
+                CompiledPredicates.handleOf(predicate), BOX_BOOLEAN));
+    }
+
+    /**
+     * Returns a handle of type {@code (Object)Object} evaluating {@code function}.
+     */
+    private static MethodHandle handleOf(Function<?, ?> function) {
+        checkNotNull(function);
+        if (function instanceof CompiledFunction) {
+            return ((CompiledFunction<?, ?>) function).handle;
+        }
+        if (function == Functions.identity()) {
+            return MethodHandles.identity(Object.class);
+        }
+        return APPLY.bindTo(function);
+    }
+}
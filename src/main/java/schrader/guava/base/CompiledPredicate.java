@@ -0,0 +1,39 @@
+package schrader.guava.base;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A predicate whose whole composition tree has been combined into a single {@link MethodHandle}.
+ * <p>
+ * Evaluating it is one {@code invokeExact} call instead of a walk over nested predicate objects.
+ * Once the call site is hot, the JVM compiles the handle as one unit and can inline the entire
+ * chain, including the leaves. Being a Guava {@link Predicate}, it is a
+ * {@link java.util.function.Predicate} as well.
+ *
+ * @see CompiledPredicates
+ */
+public final class CompiledPredicate<T> implements Predicate<T> {
+
+    /**
+     * Type {@code (Object)boolean}.
+     */
+    final MethodHandle handle;
+
+    CompiledPredicate(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public boolean apply(@Nullable T input) {
+        try {
+            return (boolean) handle.invokeExact((Object) input);
+        } catch (Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package schrader.guava.base;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counterparts of the {@link Predicates} factories that build {@link CompiledPredicate}s.
+ * <p>
+ * Composing compiled predicates combines their method handles, so {@code or(containsPattern("J"),
+ * not(containsPattern("a")))} ends up as a single handle. Any other {@link Predicate} becomes a
+ * leaf of the tree. Guava's own {@code and}, {@code or} and {@code not} cannot be looked into and
+ * therefore stay leaves, too; {@code Predicates.notNull()}, {@code isNull()}, {@code alwaysTrue()}
+ * and {@code alwaysFalse()} are recognized.
+ */
+public final class CompiledPredicates {
+
+    private static final MethodHandle APPLY;
+    private static final MethodHandle NOT;
+    private static final MethodHandle IS_NULL;
+    private static final MethodHandle NON_NULL;
+    private static final MethodHandle EQUALS;
+    private static final MethodHandle IS_INSTANCE;
+    private static final MethodHandle FIND;
+
+    static {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            APPLY = lookup.findVirtual(Predicate.class, "apply", MethodType.methodType(boolean.class, Object.class));
+            NOT = lookup.findStatic(CompiledPredicates.class, "not",
+                    MethodType.methodType(boolean.class, boolean.class));
+            IS_NULL = lookup.findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+            NON_NULL = lookup.findStatic(Objects.class, "nonNull", MethodType.methodType(boolean.class, Object.class));
+            EQUALS = lookup.findVirtual(Object.class, "equals", MethodType.methodType(boolean.class, Object.class));
+            IS_INSTANCE = lookup.findVirtual(Class.class, "isInstance",
+                    MethodType.methodType(boolean.class, Object.class));
+            FIND = lookup.findStatic(CompiledPredicates.class, "find",
+                    MethodType.methodType(boolean.class, Pattern.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CompiledPredicates() {
+    }
+
+    /**
+     * Wraps an arbitrary predicate as a leaf.
+     */
+    public static <T> CompiledPredicate<T> of(Predicate<? super T> predicate) {
+        return new CompiledPredicate<>(handleOf(predicate));
+    }
+
+    public static <T> CompiledPredicate<T> alwaysTrue() {
+        return new CompiledPredicate<>(constant(true));
+    }
+
+    public static <T> CompiledPredicate<T> alwaysFalse() {
+        return new CompiledPredicate<>(constant(false));
+    }
+
+    public static <T> CompiledPredicate<T> isNull() {
+        return new CompiledPredicate<>(IS_NULL);
+    }
+
+    public static <T> CompiledPredicate<T> notNull() {
+        return new CompiledPredicate<>(NON_NULL);
+    }
+
+    public static <T> CompiledPredicate<T> equalTo(Object target) {
+        return target == null ? CompiledPredicates.<T>isNull() : new CompiledPredicate<T>(EQUALS.bindTo(target));
+    }
+
+    public static <T> CompiledPredicate<T> instanceOf(Class<?> type) {
+        return new CompiledPredicate<>(IS_INSTANCE.bindTo(checkNotNull(type)));
+    }
+
+    /**
+     * Like {@link Predicates#containsPattern(String)}, for inputs that are {@link CharSequence}s.
+     */
+    public static CompiledPredicate<CharSequence> containsPattern(String pattern) {
+        return new CompiledPredicate<>(FIND.bindTo(Pattern.compile(pattern)));
+    }
+
+    public static <T> CompiledPredicate<T> not(Predicate<? super T> predicate) {
+        return new CompiledPredicate<>(MethodHandles.filterReturnValue(handleOf(predicate), NOT));
+    }
+
+    @SafeVarargs
+    public static <T> CompiledPredicate<T> and(Predicate<? super T>... components) {
+        final ImmutableList.Builder<Predicate<? super T>> list = ImmutableList.builder();
+        for (Predicate<? super T> component : components) {
+            list.add(component);
+        }
+        return CompiledPredicates.<T>and(list.build());
+    }
+
+    public static <T> CompiledPredicate<T> and(Iterable<? extends Predicate<? super T>> components) {
+        // a && rest: if a then rest else false
+        final List<MethodHandle> handles = handlesOf(components);
+        MethodHandle result = handles.isEmpty() ? constant(true) : handles.get(handles.size() - 1);
+        for (int i = handles.size() - 2; i >= 0; i--) {
+            result = MethodHandles.guardWithTest(handles.get(i), result, constant(false));
+        }
+        return new CompiledPredicate<>(result);
+    }
+
+    @SafeVarargs
+    public static <T> CompiledPredicate<T> or(Predicate<? super T>... components) {
+        final ImmutableList.Builder<Predicate<? super T>> list = ImmutableList.builder();
+        for (Predicate<? super T> component : components) {
+            list.add(component);
+        }
+        return CompiledPredicates.<T>or(list.build());
+    }
+
+    public static <T> CompiledPredicate<T> or(Iterable<? extends Predicate<? super T>> components) {
+        // a || rest: if a then true else rest
+        final List<MethodHandle> handles = handlesOf(components);
+        MethodHandle result = handles.isEmpty() ? constant(false) : handles.get(handles.size() - 1);
+        for (int i = handles.size() - 2; i >= 0; i--) {
+            result = MethodHandles.guardWithTest(handles.get(i), constant(true), result);
+        }
+        return new CompiledPredicate<>(result);
+    }
+
+    /**
+     * Returns a handle of type {@code (Object)boolean} evaluating {@code predicate}.
+     */
+    static MethodHandle handleOf(Predicate<?> predicate) {
+        checkNotNull(predicate);
+        if (predicate instanceof CompiledPredicate) {
+            return ((CompiledPredicate<?>) predicate).handle;
+        }
+        if (predicate == Predicates.notNull()) {
+            return NON_NULL;
+        }
+        if (predicate == Predicates.isNull()) {
+            return IS_NULL;
+        }
+        if (predicate == Predicates.alwaysTrue()) {
+            return constant(true);
+        }
+        if (predicate == Predicates.alwaysFalse()) {
+            return constant(false);
+        }
+        return APPLY.bindTo(predicate);
+    }
+
+    private static List<MethodHandle> handlesOf(Iterable<? extends Predicate<?>> components) {
+        final ImmutableList.Builder<MethodHandle> handles = ImmutableList.builder();
+        for (Predicate<?> component : components) {
+            handles.add(handleOf(component));
+        }
+        return handles.build();
+    }
+
+    private static MethodHandle constant(boolean value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, Object.class);
+    }
+
+    private static boolean not(boolean value) {
+        return !value;
+    }
+
+    private static boolean find(Pattern pattern, Object input) {
+        return pattern.matcher((CharSequence) input).find();
+    }
+}
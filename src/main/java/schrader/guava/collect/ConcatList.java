@@ -0,0 +1,134 @@
+package schrader.guava.collect;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Unmodifiable list view over several random access lists. {@link #get(int)} finds the part by a
+ * binary search over the prefix offsets of the parts, so it depends only on the number of parts,
+ * not on their sizes.
+ */
+final class ConcatList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final ImmutableList<List<? extends T>> parts;
+    private final int[] offsets;
+
+    ConcatList(ImmutableList<List<? extends T>> parts) {
+        this.parts = parts;
+        this.offsets = new int[parts.size() + 1];
+        for (int i = 0; i < parts.size(); i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], parts.get(i).size());
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        checkElementIndex(index, size());
+        final int part = partOf(index);
+        return parts.get(part).get(index - offsets[part]);
+    }
+
+    @Override
+    public int size() {
+        return offsets[parts.size()];
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Iterators.unmodifiableIterator(Iterators.concat(Iterators.transform(parts.iterator(), List::iterator)));
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Object[] array = new Object[size()];
+        for (int i = 0; i < parts.size(); i++) {
+            final Object[] part = parts.get(i).toArray();
+            System.arraycopy(part, 0, array, offsets[i], part.length);
+        }
+        return array;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ConcatSpliterator(0, size());
+    }
+
+    /**
+     * Parts never are empty, so there are no duplicate offsets.
+     */
+    private int partOf(int index) {
+        final int found = Arrays.binarySearch(offsets, 0, parts.size(), index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Splits by index; traversal walks the parts directly instead of searching for every element.
+     */
+    private final class ConcatSpliterator implements Spliterator<T> {
+
+        private int from;
+        private final int to;
+
+        ConcatSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(get(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (from >= to) {
+                return;
+            }
+            int part = partOf(from);
+            while (from < to) {
+                final List<? extends T> list = parts.get(part);
+                final int end = Math.min(to, offsets[part + 1]);
+                for (int i = from - offsets[part]; i < end - offsets[part]; i++) {
+                    action.accept(list.get(i));
+                }
+                from = end;
+                part++;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int mid = (from + to) >>> 1;
+            if (mid <= from) {
+                return null;
+            }
+            final Spliterator<T> prefix = new ConcatSpliterator(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+}
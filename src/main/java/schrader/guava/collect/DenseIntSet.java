@@ -0,0 +1,190 @@
+package schrader.guava.collect;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link IntSet} backed by a plain bitset; one bit per value up to the largest value.
+ * <p>
+ * Best suited for small, densely populated domains. Set algebra on large sets runs in parallel.
+ */
+public final class DenseIntSet extends IntSet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of words above which set algebra is split across the common fork/join pool.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private long[] words;
+    private int size;
+
+    private DenseIntSet(long[] words) {
+        this.words = words;
+        this.size = cardinality(words);
+    }
+
+    public static DenseIntSet create() {
+        return new DenseIntSet(new long[0]);
+    }
+
+    public static DenseIntSet of(int... values) {
+        final DenseIntSet set = create();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        final int index = value >>> 6;
+        return value >= 0 && index < words.length && (words[index] & (1L << value)) != 0;
+    }
+
+    @Override
+    public boolean add(int value) {
+        checkArgument(value >= 0, "value must not be negative: %s", value);
+        final int index = value >>> 6;
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, 2 * words.length));
+        }
+        final long before = words[index];
+        words[index] |= 1L << value;
+        if (before == words[index]) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+        words[value >>> 6] &= ~(1L << value);
+        size--;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+        size = 0;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt intIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = -1;
+            private long word;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0) {
+                    if (++index >= words.length) {
+                        index = words.length;
+                        return false;
+                    }
+                    word = words[index];
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = (index << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                DenseIntSet.this.remove(last);
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public DenseIntSet union(IntSet other) {
+        if (!(other instanceof DenseIntSet)) {
+            return union(copy(), other);
+        }
+        final long[] a = words;
+        final long[] b = ((DenseIntSet) other).words;
+        final long[] result = Arrays.copyOf(a.length >= b.length ? a : b, Math.max(a.length, b.length));
+        final long[] shorter = a.length >= b.length ? b : a;
+        range(shorter.length).forEach(i -> result[i] |= shorter[i]);
+        return new DenseIntSet(result);
+    }
+
+    @Override
+    public DenseIntSet intersection(IntSet other) {
+        if (!(other instanceof DenseIntSet)) {
+            return intersection(this, create(), other);
+        }
+        final long[] a = words;
+        final long[] b = ((DenseIntSet) other).words;
+        final long[] result = new long[Math.min(a.length, b.length)];
+        range(result.length).forEach(i -> result[i] = a[i] & b[i]);
+        return new DenseIntSet(result);
+    }
+
+    @Override
+    public DenseIntSet difference(IntSet other) {
+        if (!(other instanceof DenseIntSet)) {
+            return difference(this, create(), other);
+        }
+        final long[] b = ((DenseIntSet) other).words;
+        final long[] result = words.clone();
+        range(Math.min(result.length, b.length)).forEach(i -> result[i] &= ~b[i]);
+        return new DenseIntSet(result);
+    }
+
+    @Override
+    public boolean containsAll(IntSet other) {
+        if (!(other instanceof DenseIntSet)) {
+            return super.containsAll(other);
+        }
+        final long[] b = ((DenseIntSet) other).words;
+        for (int i = 0; i < b.length; i++) {
+            final long word = i < words.length ? words[i] : 0L;
+            if ((b[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public DenseIntSet copy() {
+        return new DenseIntSet(words.clone());
+    }
+
+    private static IntStream range(int words) {
+        final IntStream range = IntStream.range(0, words);
+        return words > PARALLEL_THRESHOLD ? range.parallel() : range;
+    }
+
+    private static int cardinality(long[] words) {
+        return range(words.length).map(i -> Long.bitCount(words[i])).sum();
+    }
+}
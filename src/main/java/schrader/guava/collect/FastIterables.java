@@ -0,0 +1,83 @@
+package schrader.guava.collect;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Bulk alternatives to {@code Iterables.concat} and {@code Iterables.elementsEqual} for random
+ * access and immutable sources.
+ */
+public final class FastIterables {
+
+    private FastIterables() {
+    }
+
+    /**
+     * Concatenates the given iterables into an unmodifiable, random access list.
+     * <p>
+     * Random access lists are used as they are, every other iterable is copied once. Unlike
+     * {@code Iterables.concat}, the result supports {@code get(int)} without iterating and splits
+     * evenly for parallel streams. The parts must not change their size afterwards.
+     */
+    @SafeVarargs
+    public static <T> List<T> concat(Iterable<? extends T>... parts) {
+        // copied element by element; handing the array itself on would let it escape
+        final ImmutableList.Builder<Iterable<? extends T>> list = ImmutableList.builder();
+        for (Iterable<? extends T> part : parts) {
+            list.add(part);
+        }
+        return concat(list.build());
+    }
+
+    public static <T> List<T> concat(Iterable<? extends Iterable<? extends T>> parts) {
+        final ImmutableList.Builder<List<? extends T>> lists = ImmutableList.builder();
+        for (Iterable<? extends T> part : parts) {
+            final List<? extends T> list = part instanceof List && part instanceof RandomAccess
+                    ? (List<? extends T>) part
+                    : ImmutableList.copyOf(part);
+            if (!list.isEmpty()) {
+                lists.add(list);
+            }
+        }
+        return new ConcatList<>(lists.build());
+    }
+
+    /**
+     * Same result as {@code Iterables.elementsEqual}.
+     * <p>
+     * Sources of different sizes are rejected without looking at any element, immutable sets
+     * compare their cached hash codes first, and random access lists are compared by index instead
+     * of through iterators.
+     */
+    public static boolean elementsEqual(Iterable<?> iterable1, Iterable<?> iterable2) {
+        if (iterable1 == iterable2) {
+            return true;
+        }
+        if (iterable1 instanceof Collection && iterable2 instanceof Collection
+                && ((Collection<?>) iterable1).size() != ((Collection<?>) iterable2).size()) {
+            return false;
+        }
+        if (iterable1 instanceof ImmutableSet && iterable2 instanceof ImmutableSet
+                && iterable1.hashCode() != iterable2.hashCode()) {
+            return false;
+        }
+        if (iterable1 instanceof List && iterable1 instanceof RandomAccess
+                && iterable2 instanceof List && iterable2 instanceof RandomAccess) {
+            final List<?> list1 = (List<?>) iterable1;
+            final List<?> list2 = (List<?>) iterable2;
+            for (int i = 0; i < list1.size(); i++) {
+                if (!Objects.equal(list1.get(i), list2.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Iterables.elementsEqual(iterable1, iterable2);
+    }
+}
@@ -0,0 +1,149 @@
+package schrader.guava.collect;
+
+import com.google.common.primitives.ImmutableIntArray;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+
+/**
+ * A mutable set of non-negative {@code int} values, usable as a {@code Set<Integer>} without
+ * boxing on the primitive methods.
+ * <p>
+ * {@link #union}, {@link #intersection} and {@link #difference} never modify their operands.
+ * When both operands are of the same implementation they operate on whole words instead of
+ * single elements.
+ *
+ * @see DenseIntSet
+ * @see RoaringIntSet
+ */
+public abstract class IntSet extends AbstractSet<Integer> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public abstract boolean contains(int value);
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public abstract boolean add(int value);
+
+    public abstract boolean remove(int value);
+
+    public abstract PrimitiveIterator.OfInt intIterator();
+
+    public abstract IntSet union(IntSet other);
+
+    public abstract IntSet intersection(IntSet other);
+
+    public abstract IntSet difference(IntSet other);
+
+    /**
+     * Returns {@code true} if this set contains every value of {@code other}.
+     */
+    public boolean containsAll(IntSet other) {
+        final PrimitiveIterator.OfInt values = other.intIterator();
+        while (values.hasNext()) {
+            if (!contains(values.nextInt())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return c instanceof IntSet ? containsAll((IntSet) c) : super.containsAll(c);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && remove(((Integer) o).intValue());
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return intIterator();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return removeMatching(c, true);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeMatching(c, false);
+    }
+
+    private boolean removeMatching(Collection<?> c, boolean contained) {
+        final ImmutableIntArray.Builder matches = ImmutableIntArray.builder();
+        final PrimitiveIterator.OfInt values = intIterator();
+        while (values.hasNext()) {
+            final int value = values.nextInt();
+            if (c.contains(value) == contained) {
+                matches.add(value);
+            }
+        }
+        final ImmutableIntArray removals = matches.build();
+        for (int i = 0; i < removals.length(); i++) {
+            remove(removals.get(i));
+        }
+        return !removals.isEmpty();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        final PrimitiveIterator.OfInt values = intIterator();
+        while (values.hasNext()) {
+            hash += values.nextInt();
+        }
+        return hash;
+    }
+
+    /**
+     * Element-wise fallback for operands of different implementations.
+     */
+    static <S extends IntSet> S union(S result, IntSet other) {
+        final PrimitiveIterator.OfInt values = other.intIterator();
+        while (values.hasNext()) {
+            result.add(values.nextInt());
+        }
+        return result;
+    }
+
+    static <S extends IntSet> S intersection(IntSet self, S result, IntSet other) {
+        final PrimitiveIterator.OfInt values = self.intIterator();
+        while (values.hasNext()) {
+            final int value = values.nextInt();
+            if (other.contains(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    static <S extends IntSet> S difference(IntSet self, S result, IntSet other) {
+        final PrimitiveIterator.OfInt values = self.intIterator();
+        while (values.hasNext()) {
+            final int value = values.nextInt();
+            if (!other.contains(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package schrader.guava.collect;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link Function} that remembers its results.
+ * <p>
+ * Concurrent calls for an equal input are deduplicated: the first one computes the result, the
+ * others wait for it. A {@code null} input is passed through to the delegate without caching.
+ * <p>
+ * One instance can be shared across several {@link MemoizingTransform} views.
+ */
+public final class MemoizingFunction<F, T> implements Function<F, T> {
+
+    private final Function<? super F, ? extends T> delegate;
+    private final LoadingCache<F, Optional<T>> cache;
+
+    private MemoizingFunction(Function<? super F, ? extends T> delegate, CacheBuilder<Object, Object> builder) {
+        this.delegate = checkNotNull(delegate);
+        this.cache = builder.build(new CacheLoader<F, Optional<T>>() {
+            @Override
+            public Optional<T> load(F input) {
+                return Optional.fromNullable(delegate.apply(input));
+            }
+        });
+    }
+
+    /**
+     * Creates a function caching every result for its whole lifetime.
+     */
+    public static <F, T> MemoizingFunction<F, T> unbounded(Function<? super F, ? extends T> delegate) {
+        return new MemoizingFunction<>(delegate, CacheBuilder.newBuilder());
+    }
+
+    /**
+     * Creates a function keeping at most {@code maximumSize} results; the least recently used are
+     * evicted first.
+     */
+    public static <F, T> MemoizingFunction<F, T> bounded(Function<? super F, ? extends T> delegate, long maximumSize) {
+        checkArgument(maximumSize >= 0, "maximumSize must not be negative: %s", maximumSize);
+        return new MemoizingFunction<>(delegate, CacheBuilder.newBuilder().maximumSize(maximumSize));
+    }
+
+    @Nullable
+    @Override
+    public T apply(@Nullable F input) {
+        if (input == null) {
+            return delegate.apply(null);
+        }
+        return cache.getUnchecked(input).orNull();
+    }
+
+    /**
+     * Returns the number of results currently cached.
+     */
+    public long cachedSize() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
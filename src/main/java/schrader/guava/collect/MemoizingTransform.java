@@ -0,0 +1,68 @@
+package schrader.guava.collect;
+
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A memoizing counterpart of {@code Iterables.transform} and {@code Collections2.transform}.
+ * <p>
+ * Like those, this is a lazy view of the source: elements added to the source later show up
+ * here, too. Unlike those, the function is applied at most once per distinct element, no matter
+ * how often the view is iterated.
+ */
+public final class MemoizingTransform<F, T> extends FluentIterable<T> {
+
+    private final Iterable<F> source;
+    private final MemoizingFunction<F, T> function;
+
+    private MemoizingTransform(Iterable<F> source, MemoizingFunction<F, T> function) {
+        this.source = checkNotNull(source);
+        this.function = checkNotNull(function);
+    }
+
+    /**
+     * Creates a view with its own unbounded cache.
+     */
+    public static <F, T> MemoizingTransform<F, T> of(Iterable<F> source, Function<? super F, ? extends T> function) {
+        return new MemoizingTransform<>(source, MemoizingFunction.<F, T>unbounded(function));
+    }
+
+    /**
+     * Creates a view backed by a cache shared with other views.
+     */
+    public static <F, T> MemoizingTransform<F, T> of(Iterable<F> source, MemoizingFunction<F, T> function) {
+        return new MemoizingTransform<>(source, function);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Iterators.transform(source.iterator(), function);
+    }
+
+    /**
+     * Evaluates the function for all elements in parallel and returns the results as an
+     * unmodifiable snapshot. The results are cached, so iterating the view afterwards is cheap.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> materialize() {
+        final List<F> inputs = source instanceof List && source instanceof RandomAccess ? (List<F>) source : Lists.newArrayList(source);
+        if (inputs.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final Object[] results = new Object[inputs.size()];
+        IntStream.range(0, results.length).parallel().forEach(i -> results[i] = function.apply(inputs.get(i)));
+        return Collections.unmodifiableList((List<T>) Arrays.asList(results));
+    }
+}
@@ -0,0 +1,207 @@
+package schrader.guava.collect;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Parallel counterparts of {@code Iterables.find}, {@code tryFind}, {@code indexOf}, {@code any}
+ * and {@code all}.
+ * <p>
+ * Large random access lists are split into ranges searched on a {@link ForkJoinPool}. As soon as
+ * the result is decided, the remaining ranges stop at their next check and ranges not yet started
+ * are skipped. All other iterables, including lazy ones, are searched sequentially.
+ * <p>
+ * {@code find}, {@code tryFind} and {@code indexOf} return the first match in encounter order;
+ * {@link #findAny} returns whichever match is found first, which avoids waiting for earlier ranges.
+ */
+public final class ParallelSearch {
+
+    /**
+     * Lists smaller than this are searched sequentially.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Number of elements a range searches between two checks whether the result is decided.
+     */
+    private static final int CHECK_INTERVAL = 1 << 10;
+
+    private static final int NOT_FOUND = Integer.MAX_VALUE;
+
+    private final ForkJoinPool pool;
+
+    private ParallelSearch(ForkJoinPool pool) {
+        this.pool = checkNotNull(pool);
+    }
+
+    public static ParallelSearch create() {
+        return new ParallelSearch(ForkJoinPool.commonPool());
+    }
+
+    public static ParallelSearch create(ForkJoinPool pool) {
+        return new ParallelSearch(pool);
+    }
+
+    /**
+     * @throws NoSuchElementException if no element matches
+     */
+    public <T> T find(Iterable<T> iterable, Predicate<? super T> predicate) {
+        if (!isParallel(iterable)) {
+            return Iterables.find(iterable, predicate);
+        }
+        final int index = search((List<T>) iterable, predicate, true);
+        if (index < 0) {
+            throw new NoSuchElementException();
+        }
+        return ((List<T>) iterable).get(index);
+    }
+
+    public <T> T find(Iterable<? extends T> iterable, Predicate<? super T> predicate, T defaultValue) {
+        if (!isParallel(iterable)) {
+            return Iterables.find(iterable, predicate, defaultValue);
+        }
+        final List<? extends T> list = (List<? extends T>) iterable;
+        final int index = search(list, predicate, true);
+        return index < 0 ? defaultValue : list.get(index);
+    }
+
+    /**
+     * @throws NullPointerException if the first matching element is null
+     */
+    public <T> Optional<T> tryFind(Iterable<T> iterable, Predicate<? super T> predicate) {
+        if (!isParallel(iterable)) {
+            return Iterables.tryFind(iterable, predicate);
+        }
+        final int index = search((List<T>) iterable, predicate, true);
+        return index < 0 ? Optional.<T>absent() : Optional.of(((List<T>) iterable).get(index));
+    }
+
+    /**
+     * Returns any matching element, not necessarily the first one.
+     *
+     * @throws NullPointerException if the matching element found is null
+     */
+    public <T> Optional<T> findAny(Iterable<T> iterable, Predicate<? super T> predicate) {
+        if (!isParallel(iterable)) {
+            return Iterables.tryFind(iterable, predicate);
+        }
+        final int index = search((List<T>) iterable, predicate, false);
+        return index < 0 ? Optional.<T>absent() : Optional.of(((List<T>) iterable).get(index));
+    }
+
+    /**
+     * Returns the index of the first matching element, or -1.
+     */
+    public <T> int indexOf(Iterable<T> iterable, Predicate<? super T> predicate) {
+        return isParallel(iterable)
+                ? search((List<T>) iterable, predicate, true)
+                : Iterables.indexOf(iterable, predicate);
+    }
+
+    public <T> boolean any(Iterable<T> iterable, Predicate<? super T> predicate) {
+        return isParallel(iterable)
+                ? search((List<T>) iterable, predicate, false) >= 0
+                : Iterables.any(iterable, predicate);
+    }
+
+    public <T> boolean all(Iterable<T> iterable, Predicate<? super T> predicate) {
+        return isParallel(iterable)
+                ? search((List<T>) iterable, Predicates.not(predicate), false) < 0
+                : Iterables.all(iterable, predicate);
+    }
+
+    private static boolean isParallel(Iterable<?> iterable) {
+        return iterable instanceof List && iterable instanceof RandomAccess
+                && ((List<?>) iterable).size() >= PARALLEL_THRESHOLD;
+    }
+
+    private <T> int search(List<T> list, Predicate<? super T> predicate, boolean first) {
+        checkNotNull(predicate);
+        final int leafSize = Math.max(CHECK_INTERVAL, list.size() / (4 * pool.getParallelism()));
+        final AtomicInteger result = new AtomicInteger(NOT_FOUND);
+        pool.invoke(new RangeSearch<>(list, predicate, first, leafSize, result, 0, list.size()));
+        return result.get() == NOT_FOUND ? -1 : result.get();
+    }
+
+    /**
+     * Searches {@code [from, to)}: the left half in the current thread, the right half forked.
+     * Searching left first makes an early match in encounter order cut off the later ranges.
+     */
+    private static final class RangeSearch<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> list;
+        private final Predicate<? super T> predicate;
+        private final boolean first;
+        private final int leafSize;
+        private final AtomicInteger result;
+        private final int from;
+        private final int to;
+
+        RangeSearch(List<T> list, Predicate<? super T> predicate, boolean first, int leafSize,
+                    AtomicInteger result, int from, int to) {
+            this.list = list;
+            this.predicate = predicate;
+            this.first = first;
+            this.leafSize = leafSize;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (decided(from)) {
+                return;
+            }
+            if (to - from <= leafSize) {
+                scan();
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            final RangeSearch<T> right = new RangeSearch<>(list, predicate, first, leafSize, result, mid, to);
+            right.fork();
+            new RangeSearch<>(list, predicate, first, leafSize, result, from, mid).compute();
+            if (decided(mid) && right.tryUnfork()) {
+                return;
+            }
+            right.join();
+        }
+
+        private void scan() {
+            for (int i = from; i < to; i++) {
+                if ((i - from) % CHECK_INTERVAL == 0 && decided(i)) {
+                    return;
+                }
+                if (predicate.apply(list.get(i))) {
+                    if (first) {
+                        result.accumulateAndGet(i, Math::min);
+                    } else {
+                        result.compareAndSet(NOT_FOUND, i);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Whether elements from {@code index} on can no longer change the result.
+         */
+        private boolean decided(int index) {
+            final int found = result.get();
+            return first ? found <= index : found != NOT_FOUND;
+        }
+    }
+}
@@ -0,0 +1,582 @@
+package schrader.guava.collect;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A compressed {@link IntSet} in the style of Roaring bitmaps.
+ * <p>
+ * Values are grouped by their upper 16 bits into chunks of 65536. A sparse chunk keeps its lower
+ * 16 bits in a sorted array, a dense one in a bitmap of 1024 words. This keeps sparse ranges
+ * small while set algebra on dense chunks still works word by word. Algebra over many chunks runs
+ * in parallel.
+ * <p>
+ * Its iterators do not support {@code remove()}; use {@link #remove(int)} or the bulk removal
+ * methods instead.
+ */
+public final class RoaringIntSet extends IntSet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of chunks above which set algebra is split across the common fork/join pool.
+     */
+    static final int PARALLEL_THRESHOLD = 64;
+
+    private char[] keys;
+    private Container[] containers;
+    private int chunks;
+    private int size;
+
+    private RoaringIntSet(char[] keys, Container[] containers, int chunks) {
+        this.keys = keys;
+        this.containers = containers;
+        this.chunks = chunks;
+        for (int i = 0; i < chunks; i++) {
+            size += containers[i].cardinality();
+        }
+    }
+
+    public static RoaringIntSet create() {
+        return new RoaringIntSet(new char[4], new Container[4], 0);
+    }
+
+    public static RoaringIntSet of(int... values) {
+        final RoaringIntSet set = create();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        final int index = indexOf(high(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    @Override
+    public boolean add(int value) {
+        checkArgument(value >= 0, "value must not be negative: %s", value);
+        int index = indexOf(high(value));
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, high(value), new ArrayContainer());
+        }
+        final Container container = containers[index];
+        final int before = container.cardinality();
+        containers[index] = container.add(low(value));
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+        final int index = indexOf(high(value));
+        containers[index] = containers[index].remove(low(value));
+        if (containers[index].cardinality() == 0) {
+            removeChunk(index);
+        }
+        size--;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(containers, null);
+        chunks = 0;
+        size = 0;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt intIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = -1;
+            private int base;
+            private PrimitiveIterator.OfInt lows = IntStream.empty().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!lows.hasNext()) {
+                    if (++index >= chunks) {
+                        index = chunks;
+                        return false;
+                    }
+                    base = keys[index] << 16;
+                    lows = containers[index].iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return base | lows.nextInt();
+            }
+
+        };
+    }
+
+    @Override
+    public RoaringIntSet union(IntSet other) {
+        if (!(other instanceof RoaringIntSet)) {
+            return union(copy(), other);
+        }
+        return combine((RoaringIntSet) other, Operation.UNION);
+    }
+
+    @Override
+    public RoaringIntSet intersection(IntSet other) {
+        if (!(other instanceof RoaringIntSet)) {
+            return intersection(this, create(), other);
+        }
+        return combine((RoaringIntSet) other, Operation.INTERSECTION);
+    }
+
+    @Override
+    public RoaringIntSet difference(IntSet other) {
+        if (!(other instanceof RoaringIntSet)) {
+            return difference(this, create(), other);
+        }
+        return combine((RoaringIntSet) other, Operation.DIFFERENCE);
+    }
+
+    @Override
+    public boolean containsAll(IntSet other) {
+        if (!(other instanceof RoaringIntSet)) {
+            return super.containsAll(other);
+        }
+        final RoaringIntSet that = (RoaringIntSet) other;
+        for (int i = 0; i < that.chunks; i++) {
+            final int index = indexOf(that.keys[i]);
+            if (index < 0 || !containers[index].containsAll(that.containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public RoaringIntSet copy() {
+        final Container[] copies = new Container[Math.max(chunks, 4)];
+        for (int i = 0; i < chunks; i++) {
+            copies[i] = containers[i].copy();
+        }
+        return new RoaringIntSet(Arrays.copyOf(keys, copies.length), copies, chunks);
+    }
+
+    private enum Operation {
+        UNION, INTERSECTION, DIFFERENCE;
+
+        Container apply(Container left, Container right) {
+            if (left == null) {
+                return this == UNION ? right.copy() : null;
+            }
+            if (right == null) {
+                return this == INTERSECTION ? null : left.copy();
+            }
+            switch (this) {
+                case UNION:
+                    return left.or(right);
+                case INTERSECTION:
+                    return left.and(right);
+                default:
+                    return left.andNot(right);
+            }
+        }
+    }
+
+    private RoaringIntSet combine(RoaringIntSet other, Operation operation) {
+        // align the chunks of both operands by key, then combine each pair independently
+        final int capacity = chunks + other.chunks;
+        final char[] alignedKeys = new char[capacity];
+        final Container[] left = new Container[capacity];
+        final Container[] right = new Container[capacity];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunks || j < other.chunks) {
+            final int a = i < chunks ? keys[i] : Integer.MAX_VALUE;
+            final int b = j < other.chunks ? other.keys[j] : Integer.MAX_VALUE;
+            alignedKeys[n] = (char) Math.min(a, b);
+            left[n] = a <= b ? containers[i++] : null;
+            right[n] = b <= a ? other.containers[j++] : null;
+            n++;
+        }
+        final Container[] combined = new Container[n];
+        final IntStream range = IntStream.range(0, n);
+        (n > PARALLEL_THRESHOLD ? range.parallel() : range)
+                .forEach(k -> combined[k] = operation.apply(left[k], right[k]));
+
+        final char[] resultKeys = new char[Math.max(n, 4)];
+        final Container[] resultContainers = new Container[resultKeys.length];
+        int chunks = 0;
+        for (int k = 0; k < n; k++) {
+            if (combined[k] != null && combined[k].cardinality() > 0) {
+                resultKeys[chunks] = alignedKeys[k];
+                resultContainers[chunks++] = combined[k];
+            }
+        }
+        return new RoaringIntSet(resultKeys, resultContainers, chunks);
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, chunks, key);
+    }
+
+    private void insertChunk(int index, char key, Container container) {
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * chunks);
+            containers = Arrays.copyOf(containers, 2 * chunks);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunks - index);
+        System.arraycopy(containers, index, containers, index + 1, chunks - index);
+        keys[index] = key;
+        containers[index] = container;
+        chunks++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+        containers[--chunks] = null;
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    /**
+     * The lower 16 bits of all values within one chunk. Mutators return the container to use from
+     * then on, which may be a different representation.
+     */
+    private abstract static class Container implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Cardinality at which an array container takes as much memory as a bitmap container.
+         */
+        static final int ARRAY_LIMIT = 4096;
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract PrimitiveIterator.OfInt iterator();
+
+        abstract Container copy();
+
+        abstract BitmapContainer toBitmap();
+
+        Container or(Container other) {
+            final BitmapContainer result = toBitmap();
+            final PrimitiveIterator.OfInt values = other.iterator();
+            while (values.hasNext()) {
+                result.add((char) values.nextInt());
+            }
+            return result.shrink();
+        }
+
+        Container and(Container other) {
+            Container result = new ArrayContainer();
+            final PrimitiveIterator.OfInt values = iterator();
+            while (values.hasNext()) {
+                final char value = (char) values.nextInt();
+                if (other.contains(value)) {
+                    result = result.add(value);
+                }
+            }
+            return result;
+        }
+
+        Container andNot(Container other) {
+            Container result = new ArrayContainer();
+            final PrimitiveIterator.OfInt values = iterator();
+            while (values.hasNext()) {
+                final char value = (char) values.nextInt();
+                if (!other.contains(value)) {
+                    result = result.add(value);
+                }
+            }
+            return result;
+        }
+
+        boolean containsAll(Container other) {
+            final PrimitiveIterator.OfInt values = other.iterator();
+            while (values.hasNext()) {
+                if (!contains((char) values.nextInt())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private static final long serialVersionUID = 1L;
+
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(2 * cardinality, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            final int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            final char[] snapshot = values;
+            return IntStream.range(0, cardinality).map(i -> snapshot[i]).iterator();
+        }
+
+        @Override
+        ArrayContainer copy() {
+            final ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(cardinality, 4));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof ArrayContainer && cardinality + other.cardinality() <= ARRAY_LIMIT) {
+                final ArrayContainer that = (ArrayContainer) other;
+                final ArrayContainer result = new ArrayContainer();
+                result.values = new char[Math.max(cardinality + that.cardinality, 4)];
+                int i = 0;
+                int j = 0;
+                int n = 0;
+                while (i < cardinality || j < that.cardinality) {
+                    final int a = i < cardinality ? values[i] : Integer.MAX_VALUE;
+                    final int b = j < that.cardinality ? that.values[j] : Integer.MAX_VALUE;
+                    result.values[n++] = (char) Math.min(a, b);
+                    if (a <= b) {
+                        i++;
+                    }
+                    if (b <= a) {
+                        j++;
+                    }
+                }
+                result.cardinality = n;
+                return result;
+            }
+            return other instanceof BitmapContainer ? other.or(this) : super.or(other);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words = new long[1 << 10];
+        private int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            final long before = words[value >>> 6];
+            words[value >>> 6] |= 1L << value;
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            if (contains(value)) {
+                words[value >>> 6] &= ~(1L << value);
+                cardinality--;
+            }
+            return shrink();
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return IntStream.range(0, words.length)
+                    .flatMap(i -> {
+                        long word = words[i];
+                        final int[] values = new int[Long.bitCount(word)];
+                        for (int n = 0; word != 0; word &= word - 1) {
+                            values[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                        }
+                        return IntStream.of(values);
+                    })
+                    .iterator();
+        }
+
+        @Override
+        BitmapContainer copy() {
+            final BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return copy();
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return super.or(other);
+            }
+            final long[] that = ((BitmapContainer) other).words;
+            final BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] | that[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return other.and(this);
+            }
+            final long[] that = ((BitmapContainer) other).words;
+            final BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & that[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result.shrink();
+        }
+
+        @Override
+        Container andNot(Container other) {
+            final BitmapContainer result = copy();
+            if (other instanceof BitmapContainer) {
+                final long[] that = ((BitmapContainer) other).words;
+                for (int i = 0; i < words.length; i++) {
+                    result.words[i] &= ~that[i];
+                }
+            } else {
+                final PrimitiveIterator.OfInt values = other.iterator();
+                while (values.hasNext()) {
+                    final char value = (char) values.nextInt();
+                    result.words[value >>> 6] &= ~(1L << value);
+                }
+            }
+            result.cardinality = 0;
+            for (long word : result.words) {
+                result.cardinality += Long.bitCount(word);
+            }
+            return result.shrink();
+        }
+
+        @Override
+        boolean containsAll(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return super.containsAll(other);
+            }
+            final long[] that = ((BitmapContainer) other).words;
+            for (int i = 0; i < words.length; i++) {
+                if ((that[i] & ~words[i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Converts back to an array container once this one has become sparse.
+         */
+        Container shrink() {
+            if (cardinality > ARRAY_LIMIT) {
+                return this;
+            }
+            Container result = new ArrayContainer();
+            final PrimitiveIterator.OfInt values = iterator();
+            while (values.hasNext()) {
+                result = result.add((char) values.nextInt());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package schrader.guava.collect;
+
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An append-only collection that keeps its elements partitioned by their concrete class.
+ * <p>
+ * {@link #filter(Class)} is the counterpart of {@code Iterables.filter(iterable, type)}: instead
+ * of checking every element, it concatenates the partitions of {@code type} and its subtypes.
+ * Elements are kept in insertion order within a partition, but not across partitions.
+ * <p>
+ * Appends are thread-safe and lock only the partition they go to. Iteration never blocks and
+ * is weakly consistent: it sees every element added before the iterator was created, and
+ * may see elements added later.
+ */
+public final class TypePartitionedCollection<E> extends AbstractCollection<E> {
+
+    private final ConcurrentMap<Class<?>, Partition> partitions = Maps.newConcurrentMap();
+    private final ConcurrentMap<Class<?>, Matches> matchesByType = Maps.newConcurrentMap();
+    private volatile ImmutableList<Partition> allPartitions = ImmutableList.of();
+
+    public static <E> TypePartitionedCollection<E> create() {
+        return new TypePartitionedCollection<>();
+    }
+
+    public static <E> TypePartitionedCollection<E> create(Iterable<? extends E> elements) {
+        final TypePartitionedCollection<E> collection = create();
+        Iterables.addAll(collection, elements);
+        return collection;
+    }
+
+    @Override
+    public boolean add(E element) {
+        checkNotNull(element);
+        Partition partition = partitions.get(element.getClass());
+        if (partition == null) {
+            partition = newPartition(element.getClass());
+        }
+        partition.append(element);
+        return true;
+    }
+
+    /**
+     * Returns a live view of all elements that are instances of {@code type}.
+     */
+    public <T> FluentIterable<T> filter(final Class<T> type) {
+        checkNotNull(type);
+        return new FluentIterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                @SuppressWarnings("unchecked") // partitions only hold instances of their type
+                final Iterable<T> matching = (Iterable<T>) FluentIterable.concat(partitionsOf(type));
+                return matching.iterator();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of elements that are instances of {@code type}.
+     */
+    public int count(Class<?> type) {
+        int count = 0;
+        for (Partition partition : partitionsOf(type)) {
+            count += partition.size;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        @SuppressWarnings("unchecked") // every partition holds elements of type E
+        final Iterable<E> all = (Iterable<E>) FluentIterable.concat(allPartitions);
+        return all.iterator();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Partition partition : allPartitions) {
+            size += partition.size;
+        }
+        return size;
+    }
+
+    private synchronized Partition newPartition(Class<?> type) {
+        Partition partition = partitions.get(type);
+        if (partition == null) {
+            partition = new Partition(type);
+            allPartitions = ImmutableList.<Partition>builder().addAll(allPartitions).add(partition).build();
+            partitions.put(type, partition);
+        }
+        return partition;
+    }
+
+    private ImmutableList<Partition> partitionsOf(Class<?> type) {
+        // the matches are cached until a partition for a new concrete class shows up
+        final ImmutableList<Partition> current = allPartitions;
+        final Matches cached = matchesByType.get(type);
+        if (cached != null && cached.basis == current) {
+            return cached.partitions;
+        }
+        final ImmutableList.Builder<Partition> matching = ImmutableList.builder();
+        for (Partition partition : current) {
+            if (type.isAssignableFrom(partition.type)) {
+                matching.add(partition);
+            }
+        }
+        final Matches matches = new Matches(current, matching.build());
+        matchesByType.put(type, matches);
+        return matches.partitions;
+    }
+
+    private static final class Matches {
+
+        final ImmutableList<Partition> basis;
+        final ImmutableList<Partition> partitions;
+
+        Matches(ImmutableList<Partition> basis, ImmutableList<Partition> partitions) {
+            this.basis = basis;
+            this.partitions = partitions;
+        }
+    }
+
+    /**
+     * The elements of one concrete class in a contiguous array. Writers synchronize; readers rely
+     * on the element being stored before the volatile size is published.
+     */
+    private static final class Partition implements Iterable<Object> {
+
+        final Class<?> type;
+        private volatile Object[] elements = new Object[16];
+        private volatile int size;
+
+        Partition(Class<?> type) {
+            this.type = type;
+        }
+
+        synchronized void append(Object element) {
+            Object[] array = elements;
+            if (size == array.length) {
+                array = Arrays.copyOf(array, 2 * size);
+                elements = array;
+            }
+            array[size] = element;
+            size++;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Object next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elements[index++];
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package schrader.guava.concurrent;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fans out blocking lookups, which may or may not find a value, over a batch of keys.
+ * <p>
+ * Each call to the loader runs on its own thread; at most {@code maxConcurrency} calls are in
+ * flight at any time. Further keys wait in a queue and are only handed to the executor once a
+ * call finishes. A call that does not finish within the timeout is interrupted and yields
+ * {@link Optional#absent()}, just like a key the loader does not know; it keeps its slot until the
+ * loader actually returns. Concurrent lookups of the same key share a single call to the loader.
+ * <p>
+ * By default virtual threads are used when the running JVM provides them (JDK 21+), a cached
+ * thread pool otherwise.
+ */
+public final class OptionalLookup<K, V> implements Closeable {
+
+    private final Function<? super K, ? extends V> loader;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "optional-lookup-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final long timeoutNanos;
+    private final ConcurrentMap<K, ListenableFuture<Optional<V>>> inFlight = Maps.newConcurrentMap();
+
+    private OptionalLookup(Builder<K, V> builder) {
+        this.loader = builder.loader;
+        this.ownsExecutor = builder.executor == null;
+        this.executor = ownsExecutor ? newDefaultExecutor() : builder.executor;
+        this.permits = new Semaphore(builder.maxConcurrency);
+        this.timeoutNanos = builder.timeoutNanos;
+    }
+
+    public static <K, V> Builder<K, V> newBuilder(Function<? super K, ? extends V> loader) {
+        return new Builder<>(loader);
+    }
+
+    /**
+     * Looks up a single key; joins the call already in flight for an equal key, if any.
+     */
+    public ListenableFuture<Optional<V>> lookup(final K key) {
+        checkNotNull(key);
+        final ListenableFuture<Optional<V>> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final SettableFuture<Optional<V>> future = SettableFuture.create();
+        final ListenableFuture<Optional<V>> raced = inFlight.putIfAbsent(key, future);
+        if (raced != null) {
+            return raced;
+        }
+        future.addListener(() -> inFlight.remove(key, future), MoreExecutors.directExecutor());
+        pending.add(() -> start(key, future));
+        dispatch();
+        return future;
+    }
+
+    /**
+     * Looks up all keys concurrently. The resulting map contains every distinct key, in the order
+     * of its first occurrence.
+     */
+    public ListenableFuture<ImmutableMap<K, Optional<V>>> lookupAll(Iterable<? extends K> keys) {
+        final Map<K, ListenableFuture<Optional<V>>> futures = Maps.newLinkedHashMap();
+        for (K key : keys) {
+            if (!futures.containsKey(key)) {
+                futures.put(key, lookup(key));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures.values()), (List<Optional<V>> values) -> {
+            final ImmutableMap.Builder<K, Optional<V>> result = ImmutableMap.builder();
+            int i = 0;
+            for (K key : futures.keySet()) {
+                result.put(key, values.get(i++));
+            }
+            return result.build();
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Starts queued calls while permits are available. Runs after every enqueue and every release,
+     * so a queued call cannot be left behind.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            final Runnable call = pending.poll();
+            if (call == null) {
+                permits.release();
+            } else {
+                call.run();
+            }
+        }
+    }
+
+    /**
+     * Runs the loader for {@code key} on the executor; the caller holds a permit.
+     */
+    private void start(final K key, final SettableFuture<Optional<V>> result) {
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final ListenableFutureTask<V> call = ListenableFutureTask.create(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return loader.apply(key);
+            } finally {
+                // only now, an interrupted loader may ignore the interrupt and keep running
+                release();
+            }
+        });
+        // a call cancelled before it ran never reaches the loader
+        call.addListener(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                release();
+            }
+        }, MoreExecutors.directExecutor());
+        try {
+            result.setFuture(Futures.catching(
+                    Futures.transform(Futures.withTimeout(call, timeoutNanos, TimeUnit.NANOSECONDS, timer),
+                            Optional::fromNullable, MoreExecutors.directExecutor()),
+                    TimeoutException.class, e -> Optional.absent(), MoreExecutors.directExecutor()));
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            result.setException(e);
+            call.cancel(false);
+        }
+    }
+
+    private void release() {
+        permits.release();
+        dispatch();
+    }
+
+    /**
+     * Cancels the lookups still in flight.
+     */
+    @Override
+    public void close() {
+        for (ListenableFuture<Optional<V>> future : inFlight.values()) {
+            future.cancel(true);
+        }
+        timer.shutdownNow();
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "optional-lookup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static final class Builder<K, V> {
+
+        private final Function<? super K, ? extends V> loader;
+        private ExecutorService executor;
+        private int maxConcurrency = 64;
+        private long timeoutNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private Builder(Function<? super K, ? extends V> loader) {
+            this.loader = checkNotNull(loader);
+        }
+
+        public Builder<K, V> executor(ExecutorService executor) {
+            this.executor = checkNotNull(executor);
+            return this;
+        }
+
+        public Builder<K, V> maxConcurrency(int maxConcurrency) {
+            checkArgument(maxConcurrency > 0, "maxConcurrency must be positive: %s", maxConcurrency);
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder<K, V> timeout(long timeout, TimeUnit unit) {
+            checkArgument(timeout > 0, "timeout must be positive: %s", timeout);
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        public OptionalLookup<K, V> build() {
+            return new OptionalLookup<>(this);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package schrader.guava.reactive;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Common plumbing of an operator: it subscribes upstream and is the subscription of exactly one
+ * downstream subscriber.
+ * <p>
+ * All signals to the downstream subscriber are emitted from {@link #drainLoop()}, which never
+ * runs concurrently with itself: whoever triggers a drain while another thread is draining just
+ * marks it as missed, and the draining thread loops once more.
+ */
+abstract class AbstractStage<T, R> implements Flow.Subscriber<T>, Flow.Subscription {
+
+    final Flow.Subscriber<? super R> downstream;
+    final AtomicLong requested = new AtomicLong();
+    volatile Flow.Subscription upstream;
+    volatile boolean done;
+    volatile Throwable error;
+    volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private final AtomicInteger wip = new AtomicInteger();
+    private boolean terminated;
+
+    AbstractStage(Flow.Subscriber<? super R> downstream) {
+        this.downstream = downstream;
+    }
+
+    /**
+     * Number of items to request from upstream right after subscribing.
+     */
+    abstract long initialRequest();
+
+    /**
+     * Emits as much as the current demand allows, and the terminal signal once everything has
+     * been emitted. Only ever runs on one thread at a time.
+     */
+    abstract void drainLoop();
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        downstream.onSubscribe(this);
+        subscription.request(initialRequest());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // signalled from the drain loop, which may be emitting on another thread right now
+            invalidRequest = new IllegalArgumentException("non-positive request: " + n);
+        } else {
+            long current;
+            do {
+                current = requested.get();
+            } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        upstream.cancel();
+        drain();
+    }
+
+    final void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (!terminated) {
+                final Throwable invalid = invalidRequest;
+                if (invalid != null) {
+                    fail(invalid);
+                } else {
+                    drainLoop();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Emits one item and consumes one unit of demand. Call from {@link #drainLoop()} only.
+     */
+    final void emit(R item) {
+        if (item == null) {
+            fail(new NullPointerException("operator produced a null item"));
+            return;
+        }
+        requested.decrementAndGet();
+        downstream.onNext(item);
+    }
+
+    /**
+     * Cancels upstream and signals the failure downstream. Call from {@link #drainLoop()} only.
+     */
+    final void fail(Throwable throwable) {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        cancelled = true;
+        upstream.cancel();
+        downstream.onError(throwable);
+    }
+
+    /**
+     * Signals completion or the upstream error. Call from {@link #drainLoop()} only.
+     */
+    final void terminate() {
+        terminated = true;
+        if (error != null) {
+            downstream.onError(error);
+        } else {
+            downstream.onComplete();
+        }
+    }
+
+    final boolean isTerminated() {
+        return terminated;
+    }
+}
@@ -0,0 +1,65 @@
+package schrader.guava.reactive;
+
+import com.google.common.base.Supplier;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Terminal subscriber that passes every item to a consumer and completes a future with the
+ * supplied result. Items are requested in batches of {@link FluentPublisher#BUFFER_SIZE}.
+ */
+final class CollectingSubscriber<T, R> implements Flow.Subscriber<T> {
+
+    private final Consumer<? super T> consumer;
+    private final Supplier<R> finisher;
+    private final CompletableFuture<R> result = new CompletableFuture<>();
+    private final int limit = FluentPublisher.BUFFER_SIZE - (FluentPublisher.BUFFER_SIZE >> 2);
+    private Flow.Subscription subscription;
+    private int received;
+
+    CollectingSubscriber(Consumer<? super T> consumer, Supplier<R> finisher) {
+        this.consumer = consumer;
+        this.finisher = finisher;
+    }
+
+    CompletableFuture<R> result() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        // cancelling the result cancels the subscription
+        result.whenComplete((value, failure) -> subscription.cancel());
+        subscription.request(FluentPublisher.BUFFER_SIZE);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            consumer.accept(item);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (++received == limit) {
+            received = 0;
+            subscription.request(limit);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(finisher.get());
+    }
+}
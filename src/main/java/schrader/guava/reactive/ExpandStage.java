@@ -0,0 +1,98 @@
+package schrader.guava.reactive;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+
+/**
+ * Turns every upstream item into zero or more downstream items. This covers {@code filter},
+ * {@code transform}, {@code transformAndConcat} and {@code partition}.
+ * <p>
+ * At most {@code bufferSize} upstream items are requested ahead of downstream demand; replenishing
+ * happens in batches of three quarters of the buffer.
+ */
+final class ExpandStage<T, R> extends AbstractStage<T, R> {
+
+    /**
+     * The expansion of one item; called from the drain loop only, so it may keep state.
+     */
+    interface Expansion<T, R> {
+
+        Iterator<? extends R> expand(T item);
+
+        /**
+         * Items still to emit when upstream completes normally.
+         */
+        default Iterator<? extends R> flush() {
+            return Collections.emptyIterator();
+        }
+    }
+
+    private final Expansion<T, R> expansion;
+    private final int bufferSize;
+    private final int limit;
+    private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+    private Iterator<? extends R> current = Collections.emptyIterator();
+    private int consumed;
+    private boolean flushed;
+
+    ExpandStage(Flow.Subscriber<? super R> downstream, Expansion<T, R> expansion, int bufferSize) {
+        super(downstream);
+        this.expansion = expansion;
+        this.bufferSize = bufferSize;
+        this.limit = bufferSize - (bufferSize >> 2);
+    }
+
+    @Override
+    long initialRequest() {
+        return bufferSize;
+    }
+
+    @Override
+    public void onNext(T item) {
+        buffer.offer(item);
+        drain();
+    }
+
+    @Override
+    void drainLoop() {
+        try {
+            while (!isTerminated()) {
+                if (cancelled) {
+                    buffer.clear();
+                    current = Collections.emptyIterator();
+                    return;
+                }
+                if (current.hasNext()) {
+                    if (requested.get() == 0) {
+                        return;
+                    }
+                    emit(current.next());
+                    continue;
+                }
+                final T item = buffer.poll();
+                if (item != null) {
+                    current = expansion.expand(item);
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        upstream.request(limit);
+                    }
+                    continue;
+                }
+                if (!done) {
+                    return;
+                }
+                if (!flushed && error == null) {
+                    flushed = true;
+                    current = expansion.flush();
+                    continue;
+                }
+                terminate();
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+}
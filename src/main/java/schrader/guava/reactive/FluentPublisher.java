@@ -0,0 +1,140 @@
+package schrader.guava.reactive;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link Flow.Publisher} with the operators of {@link com.google.common.collect.FluentIterable}.
+ * <p>
+ * Unlike {@code FluentIterable}, items are pushed to subscribers as they request them. Every
+ * operator buffers a bounded number of items, so a pipeline streams arbitrarily large inputs in
+ * constant memory. Publishers are cold: each subscriber starts its own pass over the source.
+ * Null items are not allowed.
+ */
+public final class FluentPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Number of items each operator requests ahead of downstream demand.
+     */
+    public static final int BUFFER_SIZE = Flow.defaultBufferSize();
+
+    private final Flow.Publisher<T> source;
+
+    private FluentPublisher(Flow.Publisher<T> source) {
+        this.source = source;
+    }
+
+    public static <T> FluentPublisher<T> from(Flow.Publisher<T> source) {
+        checkNotNull(source);
+        return source instanceof FluentPublisher ? (FluentPublisher<T>) source : new FluentPublisher<>(source);
+    }
+
+    /**
+     * Publishes the elements of {@code iterable}; they are pulled lazily, as they are requested.
+     */
+    public static <T> FluentPublisher<T> from(Iterable<? extends T> iterable) {
+        return new FluentPublisher<>(new IterablePublisher<T>(checkNotNull(iterable)));
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        source.subscribe(checkNotNull(subscriber));
+    }
+
+    public FluentPublisher<T> filter(final Predicate<? super T> predicate) {
+        checkNotNull(predicate);
+        return expand(() -> item -> predicate.apply(item)
+                ? Iterators.singletonIterator(item)
+                : Collections.<T>emptyIterator());
+    }
+
+    public <R> FluentPublisher<R> transform(final Function<? super T, ? extends R> function) {
+        checkNotNull(function);
+        return expand(() -> item -> Iterators.singletonIterator(function.apply(item)));
+    }
+
+    public <R> FluentPublisher<R> transformAndConcat(final Function<? super T, ? extends Iterable<? extends R>> function) {
+        checkNotNull(function);
+        return expand(() -> item -> function.apply(item).iterator());
+    }
+
+    /**
+     * Groups consecutive items into lists of {@code size}; the last list may be smaller.
+     */
+    public FluentPublisher<List<T>> partition(final int size) {
+        checkArgument(size > 0, "size must be positive: %s", size);
+        return expand(() -> new ExpandStage.Expansion<T, List<T>>() {
+            private List<T> partition = Lists.newArrayListWithCapacity(size);
+
+            @Override
+            public Iterator<List<T>> expand(T item) {
+                partition.add(item);
+                if (partition.size() < size) {
+                    return Collections.emptyIterator();
+                }
+                final List<T> full = ImmutableList.copyOf(partition);
+                partition.clear();
+                return Iterators.singletonIterator(full);
+            }
+
+            @Override
+            public Iterator<List<T>> flush() {
+                return partition.isEmpty()
+                        ? Collections.<List<T>>emptyIterator()
+                        : Iterators.<List<T>>singletonIterator(ImmutableList.copyOf(partition));
+            }
+        });
+    }
+
+    /**
+     * Like {@link #transform}, but applies the function on up to {@code rails} items concurrently
+     * using {@code executor}. Results are emitted in the order of their items.
+     */
+    public <R> FluentPublisher<R> transformParallel(final Function<? super T, ? extends R> function,
+                                                    final int rails, final Executor executor) {
+        checkNotNull(function);
+        checkArgument(rails > 0, "rails must be positive: %s", rails);
+        checkNotNull(executor);
+        return new FluentPublisher<>(subscriber ->
+                source.subscribe(new OrderedParallelStage<T, R>(subscriber, function, rails, executor)));
+    }
+
+    /**
+     * Subscribes {@code action} and requests items in batches of {@link #BUFFER_SIZE}.
+     */
+    public CompletableFuture<Void> forEach(final Consumer<? super T> action) {
+        final CollectingSubscriber<T, Void> subscriber = new CollectingSubscriber<>(action, () -> null);
+        subscribe(subscriber);
+        return subscriber.result();
+    }
+
+    public CompletableFuture<ImmutableList<T>> toList() {
+        final ImmutableList.Builder<T> list = ImmutableList.builder();
+        final CollectingSubscriber<T, ImmutableList<T>> subscriber = new CollectingSubscriber<>(list::add, list::build);
+        subscribe(subscriber);
+        return subscriber.result();
+    }
+
+    /**
+     * Expansions may keep state, so every subscriber gets its own.
+     */
+    private <R> FluentPublisher<R> expand(final Supplier<ExpandStage.Expansion<T, R>> expansion) {
+        return new FluentPublisher<>(subscriber ->
+                source.subscribe(new ExpandStage<T, R>(subscriber, expansion.get(), BUFFER_SIZE)));
+    }
+}
@@ -0,0 +1,116 @@
+package schrader.guava.reactive;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the elements of an iterable, pulling them from a fresh iterator only as they are
+ * requested. Every subscriber gets its own iteration.
+ */
+final class IterablePublisher<T> implements Flow.Publisher<T> {
+
+    private final Iterable<? extends T> iterable;
+
+    IterablePublisher(Iterable<? extends T> iterable) {
+        this.iterable = iterable;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        final Iterator<? extends T> iterator;
+        try {
+            iterator = iterable.iterator();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(e);
+            return;
+        }
+        subscriber.onSubscribe(new IteratorSubscription<T>(subscriber, iterator));
+    }
+
+    private static final class IteratorSubscription<T> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Iterator<? extends T> iterator;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean terminated;
+
+        IteratorSubscription(Flow.Subscriber<? super T> subscriber, Iterator<? extends T> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // signalled from emit(), which may be running on another thread right now
+                invalidRequest = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                long current;
+                do {
+                    current = requested.get();
+                } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            }
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            final Throwable invalid = invalidRequest;
+            if (invalid != null) {
+                if (!terminated) {
+                    terminated = true;
+                    cancelled = true;
+                    subscriber.onError(invalid);
+                }
+                return;
+            }
+            try {
+                while (!terminated && !cancelled && requested.get() > 0) {
+                    if (!iterator.hasNext()) {
+                        terminated = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    final T item = iterator.next();
+                    if (item == null) {
+                        throw new NullPointerException("iterable contains null");
+                    }
+                    requested.decrementAndGet();
+                    subscriber.onNext(item);
+                }
+                if (!terminated && !cancelled && !iterator.hasNext()) {
+                    terminated = true;
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                terminated = true;
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package schrader.guava.reactive;
+
+import com.google.common.base.Function;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Applies a function to up to {@code rails} items concurrently and emits the results in the
+ * order of the upstream items. A slow item holds back the items behind it, but never more than
+ * {@code rails} items are in flight or waiting.
+ */
+final class OrderedParallelStage<T, R> extends AbstractStage<T, R> {
+
+    private final Function<? super T, ? extends R> function;
+    private final int rails;
+    private final Executor executor;
+    private final Queue<CompletableFuture<R>> inFlight = new ConcurrentLinkedQueue<>();
+
+    OrderedParallelStage(Flow.Subscriber<? super R> downstream, Function<? super T, ? extends R> function,
+                         int rails, Executor executor) {
+        super(downstream);
+        this.function = function;
+        this.rails = rails;
+        this.executor = executor;
+    }
+
+    @Override
+    long initialRequest() {
+        return rails;
+    }
+
+    @Override
+    public void onNext(T item) {
+        final CompletableFuture<R> result = CompletableFuture.supplyAsync(() -> function.apply(item), executor);
+        inFlight.offer(result);
+        result.whenComplete((value, failure) -> drain());
+    }
+
+    @Override
+    void drainLoop() {
+        while (!isTerminated()) {
+            if (cancelled) {
+                for (CompletableFuture<R> result : inFlight) {
+                    result.cancel(false);
+                }
+                inFlight.clear();
+                return;
+            }
+            final CompletableFuture<R> head = inFlight.peek();
+            if (head == null) {
+                if (done) {
+                    terminate();
+                }
+                return;
+            }
+            if (!head.isDone() || requested.get() == 0) {
+                return;
+            }
+            inFlight.poll();
+            final R value;
+            try {
+                value = head.join();
+            } catch (CompletionException e) {
+                fail(e.getCause());
+                return;
+            }
+            emit(value);
+            upstream.request(1);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package schrader.guava.table;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A {@link HashBasedTable} that survives restarts.
+ * <p>
+ * Every mutation is appended to a {@link WriteAheadLog} before the mutating method returns.
+ * Mutations from concurrent threads are committed in groups with a single {@code fsync}, so the
+ * cost of durability is shared instead of paid per operation. Reads are served from memory and
+ * may see mutations whose commit is still in progress.
+ * <p>
+ * If a commit fails, memory may hold mutations that were never persisted. The table then rejects
+ * all further reads and writes with an {@link IllegalStateException} and has to be reopened,
+ * which recovers exactly the committed state. The same applies after {@link #close}.
+ * <p>
+ * Every {@code snapshotEvery} mutations, a compacted snapshot of the whole table is written in the
+ * background and the log segments it covers are deleted. On {@link #open}, the cells of the latest
+ * snapshot are read straight into the table and only the log written after it is replayed. If a
+ * background snapshot fails, the log is kept and {@link #close} reports the failure, unless a
+ * later snapshot succeeded.
+ * <p>
+ * Like {@link ShardedTable}, the views are immutable snapshots. Null keys and values are not
+ * allowed; keys and values must be serializable.
+ */
+public final class DurableTable<R, C, V> implements Table<R, C, V>, Closeable {
+
+    public static final int DEFAULT_SNAPSHOT_EVERY = 100_000;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final byte PUT = 0;
+    private static final byte REMOVE = 1;
+    private static final byte CLEAR = 2;
+    private static final byte PUT_ALL = 3;
+
+    private final Path directory;
+    private final Table<R, C, V> table;
+    private final WriteAheadLog log;
+    private final int snapshotEvery;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object snapshotLock = new Object();
+    private final AtomicInteger sinceSnapshot = new AtomicInteger();
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile IOException snapshotFailure;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "durable-table-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DurableTable(Path directory, Table<R, C, V> table, WriteAheadLog log, int snapshotEvery) {
+        this.directory = directory;
+        this.table = table;
+        this.log = log;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    public static <R, C, V> DurableTable<R, C, V> open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    /**
+     * Opens the table stored in {@code directory}, or creates an empty one.
+     */
+    public static <R, C, V> DurableTable<R, C, V> open(Path directory, int snapshotEvery) throws IOException {
+        checkArgument(snapshotEvery > 0, "snapshotEvery must be positive: %s", snapshotEvery);
+        Files.createDirectories(directory);
+        final Table<R, C, V> table = HashBasedTable.create();
+        final long snapshot = latestSnapshot(directory);
+        if (snapshot >= 0) {
+            readSnapshot(snapshotPath(directory, snapshot), table);
+        }
+        final long segment = WriteAheadLog.replay(directory, Math.max(snapshot, 0), payload -> apply(table, payload));
+        return new DurableTable<>(directory, table, WriteAheadLog.open(directory, segment), snapshotEvery);
+    }
+
+    @Nullable
+    @Override
+    public V put(R rowKey, C columnKey, V value) {
+        final byte[] record = encode(PUT, checkNotNull(rowKey), checkNotNull(columnKey), checkNotNull(value));
+        final V previous;
+        final ListenableFuture<Long> committed;
+        lock.writeLock().lock();
+        try {
+            checkUsable();
+            previous = table.put(rowKey, columnKey, value);
+            committed = log.append(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(committed);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Table<? extends R, ? extends C, ? extends V> cells) {
+        final ImmutableTable<? extends R, ? extends C, ? extends V> copy = ImmutableTable.copyOf(cells);
+        if (copy.isEmpty()) {
+            return;
+        }
+        final byte[] record = encode(PUT_ALL, copy, null, null);
+        final ListenableFuture<Long> committed;
+        lock.writeLock().lock();
+        try {
+            checkUsable();
+            table.putAll(copy);
+            committed = log.append(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(committed);
+    }
+
+    @Nullable
+    @Override
+    public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+        if (rowKey == null || columnKey == null) {
+            return null;
+        }
+        final byte[] record = encode(REMOVE, rowKey, columnKey, null);
+        final V previous;
+        ListenableFuture<Long> committed = null;
+        lock.writeLock().lock();
+        try {
+            checkUsable();
+            previous = table.remove(rowKey, columnKey);
+            if (previous != null) {
+                committed = log.append(record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (committed != null) {
+            await(committed);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        final byte[] record = encode(CLEAR, null, null, null);
+        final ListenableFuture<Long> committed;
+        lock.writeLock().lock();
+        try {
+            checkUsable();
+            table.clear();
+            committed = log.append(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(committed);
+    }
+
+    @Override
+    public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.contains(rowKey, columnKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsRow(@Nullable Object rowKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.containsRow(rowKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsColumn(@Nullable Object columnKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.containsColumn(columnKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object value) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.containsValue(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.get(rowKey, columnKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return table.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ImmutableMap<C, V> row(R rowKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return ImmutableMap.copyOf(table.row(rowKey));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ImmutableMap<R, V> column(C columnKey) {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return ImmutableMap.copyOf(table.column(columnKey));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ImmutableSet<Cell<R, C, V>> cellSet() {
+        return copy().cellSet();
+    }
+
+    @Override
+    public ImmutableSet<R> rowKeySet() {
+        return copy().rowKeySet();
+    }
+
+    @Override
+    public ImmutableSet<C> columnKeySet() {
+        return copy().columnKeySet();
+    }
+
+    @Override
+    public ImmutableCollection<V> values() {
+        return copy().values();
+    }
+
+    @Override
+    public ImmutableMap<R, Map<C, V>> rowMap() {
+        return copy().rowMap();
+    }
+
+    @Override
+    public ImmutableMap<C, Map<R, V>> columnMap() {
+        return copy().columnMap();
+    }
+
+    /**
+     * Returns an immutable copy of the table.
+     */
+    public ImmutableTable<R, C, V> copy() {
+        lock.readLock().lock();
+        try {
+            checkUsable();
+            return ImmutableTable.copyOf(table);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj == this || obj instanceof Table && cellSet().equals(((Table<?, ?, ?>) obj).cellSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return cellSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return table.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of times the log has been forced to disk. Concurrent writers share these, so under
+     * contention it stays well below the number of mutations.
+     */
+    public long syncCount() {
+        return log.syncCount();
+    }
+
+    /**
+     * Writes a snapshot of the current state and deletes the log segments and snapshots it
+     * supersedes. Writers are blocked only while the table is copied in memory.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            final ImmutableTable<R, C, V> copy;
+            final ListenableFuture<Long> rotated;
+            lock.writeLock().lock();
+            try {
+                checkUsable();
+                copy = ImmutableTable.copyOf(table);
+                // the copy reflects exactly the records before the rotation
+                rotated = log.rotate();
+                sinceSnapshot.set(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            final long segment = waitFor(rotated);
+
+            final Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(copy.size());
+                for (Cell<R, C, V> cell : copy.cellSet()) {
+                    out.writeObject(cell.getRowKey());
+                    out.writeObject(cell.getColumnKey());
+                    out.writeObject(cell.getValue());
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotPath(directory, segment), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            for (long older : snapshots(directory)) {
+                if (older < segment) {
+                    Files.deleteIfExists(snapshotPath(directory, older));
+                }
+            }
+            for (long older : WriteAheadLog.segments(directory)) {
+                if (older < segment) {
+                    Files.deleteIfExists(WriteAheadLog.segmentPath(directory, older));
+                }
+            }
+            snapshotFailure = null;
+        }
+    }
+
+    /**
+     * Commits what is queued and closes the log. Throws if the last background snapshot failed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        final IOException failed = snapshotFailure;
+        if (failed != null) {
+            throw new IOException("the last background snapshot failed", failed);
+        }
+    }
+
+    /**
+     * Rejects access once memory may hold mutations that were never persisted.
+     */
+    private void checkUsable() {
+        checkState(!closed, "table is closed");
+        final IOException failed = failure;
+        if (failed != null) {
+            throw new IllegalStateException("a commit failed, reopen the table", failed);
+        }
+    }
+
+    /**
+     * Waits until the record is durable, then schedules a snapshot if one is due.
+     */
+    private void await(ListenableFuture<Long> committed) {
+        try {
+            waitFor(committed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (sinceSnapshot.incrementAndGet() >= snapshotEvery && snapshotScheduled.compareAndSet(false, true)) {
+            try {
+                snapshotter.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        // the log is still complete; the next scheduled snapshot tries again
+                        snapshotFailure = e;
+                    } catch (IllegalStateException e) {
+                        // closed or failed meanwhile
+                    } finally {
+                        snapshotScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // closed meanwhile; the record itself is durable
+                snapshotScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the segment of a committed log entry; a failed commit fails the whole table.
+     */
+    private long waitFor(ListenableFuture<Long> committed) throws IOException {
+        try {
+            return Uninterruptibles.getUninterruptibly(committed);
+        } catch (ExecutionException e) {
+            final IOException cause = (IOException) e.getCause();
+            failure = cause;
+            throw cause;
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the rename itself is atomic
+        }
+    }
+
+    private static byte[] encode(byte operation, Object first, Object second, Object third) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeByte(operation);
+            out.writeObject(first);
+            out.writeObject(second);
+            out.writeObject(third);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("keys and values must be serializable", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R, C, V> void apply(Table<R, C, V> table, byte[] record) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            final byte operation = in.readByte();
+            final Object first = in.readObject();
+            final Object second = in.readObject();
+            final Object third = in.readObject();
+            switch (operation) {
+                case PUT:
+                    table.put((R) first, (C) second, (V) third);
+                    break;
+                case REMOVE:
+                    table.remove(first, second);
+                    break;
+                case CLEAR:
+                    table.clear();
+                    break;
+                case PUT_ALL:
+                    table.putAll((Table<R, C, V>) first);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown operation " + operation);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R, C, V> void readSnapshot(Path path, Table<R, C, V> table) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            for (int remaining = in.readInt(); remaining > 0; remaining--) {
+                table.put((R) in.readObject(), (C) in.readObject(), (V) in.readObject());
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("cannot read snapshot " + path, e);
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static List<Long> snapshots(Path directory) throws IOException {
+        final List<Long> numbers = Lists.newArrayList();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SNAPSHOT_PREFIX + "[0-9]*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(
+                        name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+            }
+        }
+        return numbers;
+    }
+
+    /**
+     * Returns the number of the latest snapshot, or -1 if there is none.
+     */
+    private static long latestSnapshot(Path directory) throws IOException {
+        long latest = -1;
+        for (long number : snapshots(directory)) {
+            latest = Math.max(latest, number);
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,76 @@
+package schrader.guava.table;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Stand-in for worker processes: every shard is a {@link ShardWorker} in this JVM. An optional
+ * latency is added to every request to simulate the network.
+ */
+public final class InProcessTransport implements ShardTransport {
+
+    private final ShardWorker[] workers;
+    private final long latencyNanos;
+    private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+            Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "in-process-shard");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private InProcessTransport(int shards, long latencyNanos) {
+        checkArgument(shards > 0, "shards must be positive: %s", shards);
+        this.workers = new ShardWorker[shards];
+        for (int i = 0; i < shards; i++) {
+            workers[i] = new ShardWorker();
+        }
+        this.latencyNanos = latencyNanos;
+    }
+
+    public static InProcessTransport create(int shards) {
+        return new InProcessTransport(shards, 0);
+    }
+
+    public static InProcessTransport withLatency(int shards, long latency, TimeUnit unit) {
+        return new InProcessTransport(shards, unit.toNanos(latency));
+    }
+
+    @Override
+    public int shardCount() {
+        return workers.length;
+    }
+
+    @Override
+    public <T> ListenableFuture<T> send(int shard, ShardRequest<T> request) {
+        checkElementIndex(shard, workers.length);
+        requestCount.incrementAndGet();
+        return executor.submit(() -> {
+            if (latencyNanos > 0) {
+                Uninterruptibles.sleepUninterruptibly(latencyNanos, TimeUnit.NANOSECONDS);
+            }
+            return workers[shard].handle(request);
+        });
+    }
+
+    /**
+     * Returns the number of requests sent so far, over all shards.
+     */
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
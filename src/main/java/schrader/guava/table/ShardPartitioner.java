@@ -0,0 +1,69 @@
+package schrader.guava.table;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hashing;
+
+import java.util.Collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Decides which shard holds a row.
+ */
+public interface ShardPartitioner<R> {
+
+    /**
+     * Returns the shard of {@code rowKey}, in {@code [0, shards)}.
+     */
+    int shardOf(R rowKey, int shards);
+
+    /**
+     * Spreads rows by the hash of their key. Consistent hashing is used, so adding a shard only
+     * moves about {@code 1/shards} of the rows.
+     * <p>
+     * Shards may outlive the client, so the row keys' {@code hashCode()} must be the same in every
+     * JVM, as it is for strings, boxed primitives and value classes built on them. Enums are hashed
+     * by name, since their hash code is the identity hash code. Other keys that do not override
+     * {@code hashCode()} are rejected.
+     */
+    static <R> ShardPartitioner<R> hash() {
+        final ClassValue<Boolean> overridesHashCode = new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                try {
+                    return type.getMethod("hashCode").getDeclaringClass() != Object.class;
+                } catch (NoSuchMethodException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        return (rowKey, shards) -> {
+            final int hashCode;
+            if (rowKey instanceof Enum) {
+                hashCode = ((Enum<?>) rowKey).name().hashCode();
+            } else {
+                checkArgument(overridesHashCode.get(rowKey.getClass()),
+                        "row key %s has an identity hash code, which differs between JVMs", rowKey.getClass().getName());
+                hashCode = rowKey.hashCode();
+            }
+            return Hashing.consistentHash(Hashing.murmur3_32().hashInt(hashCode), shards);
+        };
+    }
+
+    /**
+     * Assigns ordered ranges of row keys to shards: shard {@code i} holds the rows from the
+     * {@code i}-th split point (inclusive) to the next one (exclusive). There must be one split
+     * point less than there are shards.
+     */
+    static <R extends Comparable<? super R>> ShardPartitioner<R> range(Iterable<? extends R> splitPoints) {
+        final ImmutableList<R> points = ImmutableList.copyOf(splitPoints);
+        checkArgument(Ordering.natural().isStrictlyOrdered(points), "split points must be strictly ascending: %s", points);
+        return (rowKey, shards) -> {
+            checkState(shards == points.size() + 1, "%s split points, but %s shards", points.size(), shards);
+            final int index = Collections.binarySearch(points, rowKey);
+            return index >= 0 ? index + 1 : -index - 1;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package schrader.guava.table;
+
+import com.google.common.collect.Table;
+
+import java.io.Serializable;
+
+/**
+ * An operation a {@link ShardedTable} sends to one shard. Requests are serializable so that a
+ * {@link ShardTransport} can carry them to another process.
+ *
+ * @param <T> type of the response
+ */
+public interface ShardRequest<T> extends Serializable {
+
+    T execute(Table<Object, Object, Object> shard);
+}
@@ -0,0 +1,112 @@
+package schrader.guava.table;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+
+import java.util.Map;
+
+/**
+ * The requests {@link ShardedTable} sends. They are serializable lambdas, so the receiving
+ * process must have this class on its class path.
+ */
+final class ShardRequests {
+
+    private ShardRequests() {
+    }
+
+    static ShardRequest<Object> get(Object rowKey, Object columnKey) {
+        return shard -> shard.get(rowKey, columnKey);
+    }
+
+    static ShardRequest<Object> put(Object rowKey, Object columnKey, Object value) {
+        return shard -> shard.put(rowKey, columnKey, value);
+    }
+
+    static ShardRequest<Object> remove(Object rowKey, Object columnKey) {
+        return shard -> shard.remove(rowKey, columnKey);
+    }
+
+    static ShardRequest<Boolean> contains(Object rowKey, Object columnKey) {
+        return shard -> shard.contains(rowKey, columnKey);
+    }
+
+    static ShardRequest<Boolean> containsRow(Object rowKey) {
+        return shard -> shard.containsRow(rowKey);
+    }
+
+    static ShardRequest<Boolean> containsColumn(Object columnKey) {
+        return shard -> shard.containsColumn(columnKey);
+    }
+
+    static ShardRequest<Boolean> containsValue(Object value) {
+        return shard -> shard.containsValue(value);
+    }
+
+    static ShardRequest<ImmutableMap<Object, Object>> row(Object rowKey) {
+        return shard -> ImmutableMap.copyOf(shard.row(rowKey));
+    }
+
+    static ShardRequest<ImmutableMap<Object, Object>> column(Object columnKey) {
+        return shard -> ImmutableMap.copyOf(shard.column(columnKey));
+    }
+
+    static ShardRequest<Integer> size() {
+        return Table::size;
+    }
+
+    static ShardRequest<Boolean> clear() {
+        return shard -> {
+            shard.clear();
+            return true;
+        };
+    }
+
+    static ShardRequest<ImmutableTable<Object, Object, Object>> snapshot() {
+        return ImmutableTable::copyOf;
+    }
+
+    /**
+     * Sends the cells as a flat array of row, column and value triples. Guava's concrete table
+     * classes are left out of the stream, so a shard server only has to accept plain arrays.
+     */
+    static ShardRequest<Boolean> putAll(ImmutableTable<Object, Object, Object> cells) {
+        final Object[] triples = new Object[3 * cells.size()];
+        int i = 0;
+        for (Table.Cell<Object, Object, Object> cell : cells.cellSet()) {
+            triples[i++] = cell.getRowKey();
+            triples[i++] = cell.getColumnKey();
+            triples[i++] = cell.getValue();
+        }
+        return shard -> {
+            for (int j = 0; j < triples.length; j += 3) {
+                shard.put(triples[j], triples[j + 1], triples[j + 2]);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Returns the cells that exist among the requested ones, which are sent as a flat array of row
+     * and column pairs.
+     */
+    static ShardRequest<ImmutableTable<Object, Object, Object>> getAll(ImmutableMultimap<Object, Object> cells) {
+        final Object[] pairs = new Object[2 * cells.size()];
+        int i = 0;
+        for (Map.Entry<Object, Object> cell : cells.entries()) {
+            pairs[i++] = cell.getKey();
+            pairs[i++] = cell.getValue();
+        }
+        return shard -> {
+            final ImmutableTable.Builder<Object, Object, Object> found = ImmutableTable.builder();
+            for (int j = 0; j < pairs.length; j += 2) {
+                final Object value = shard.get(pairs[j], pairs[j + 1]);
+                if (value != null) {
+                    found.put(pairs[j], pairs[j + 1], value);
+                }
+            }
+            return found.build();
+        };
+    }
+}
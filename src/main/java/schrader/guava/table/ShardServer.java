@@ -0,0 +1,165 @@
+package schrader.guava.table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Serves one shard over TCP; the worker side of {@link SocketTransport}.
+ * <p>
+ * Each connection reads a request, executes it on the shard's {@link ShardWorker} and writes back
+ * a flag telling whether it succeeded, followed by the response or the exception. Run
+ * {@link #main(String[])} to start a shard as a separate process.
+ * <p>
+ * Requests are only deserialized if they consist of the table's own request types, Guava's
+ * immutable collections and common value types like strings, boxed primitives and
+ * {@code java.time} classes. Any other key or value class must be allowed explicitly; a request
+ * containing anything else fails with an {@link InvalidClassException} and closes the connection.
+ */
+public final class ShardServer implements Closeable {
+
+    private static final String ALLOWED_CLASSES = String.join(";",
+            "java.lang.invoke.SerializedLambda",
+            // the capturing class and, after deserialization, its lambda classes
+            "schrader.guava.table.ShardRequests*",
+            "com.google.common.collect.Immutable*",
+            "java.lang.Object",
+            "java.lang.String",
+            "java.lang.Number",
+            "java.lang.Boolean",
+            "java.lang.Character",
+            "java.lang.Byte",
+            "java.lang.Short",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Float",
+            "java.lang.Double",
+            "java.lang.Enum",
+            "java.math.BigInteger",
+            "java.math.BigDecimal",
+            "java.util.UUID",
+            "java.time.*");
+
+    private final ShardWorker worker = new ShardWorker();
+    private final ServerSocket serverSocket;
+    private final ObjectInputFilter filter;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private ShardServer(ServerSocket serverSocket, ObjectInputFilter filter) {
+        this.serverSocket = serverSocket;
+        this.filter = filter;
+    }
+
+    /**
+     * Starts serving on {@code port} of the loopback interface; port 0 picks a free port.
+     * <p>
+     * {@code allowedClasses} are additional key and value classes, as patterns in the syntax of
+     * {@link ObjectInputFilter.Config#createFilter}, e.g. {@code com.example.RowKey} or
+     * {@code com.example.model.*}.
+     */
+    public static ShardServer start(int port, String... allowedClasses) throws IOException {
+        final StringBuilder pattern = new StringBuilder(ALLOWED_CLASSES);
+        for (String allowed : allowedClasses) {
+            checkArgument(!allowed.isEmpty() && allowed.indexOf(';') < 0 && !allowed.startsWith("!"),
+                    "not a class pattern: %s", allowed);
+            pattern.append(';').append(allowed);
+        }
+        final ObjectInputFilter filter = ObjectInputFilter.Config.createFilter(pattern.append(";!*").toString());
+        final ShardServer server = new ShardServer(
+                new ServerSocket(port, 50, InetAddress.getLoopbackAddress()), filter);
+        final Thread acceptor = new Thread(server::accept, "shard-server-" + server.port());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.add(socket);
+                final Thread handler = new Thread(() -> serve(socket), "shard-connection-" + port());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            out.flush();
+            final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(s.getInputStream()));
+            in.setObjectInputFilter(filter);
+            while (true) {
+                final ShardRequest<?> request;
+                try {
+                    request = (ShardRequest<?>) in.readObject();
+                } catch (ObjectStreamException | ClassNotFoundException e) {
+                    // a rejected or unreadable request leaves the stream unusable: tell the client, then close
+                    respond(out, false, e instanceof IOException
+                            ? e : new InvalidClassException("unknown class in request: " + e.getMessage()));
+                    return;
+                }
+                Object response;
+                boolean succeeded;
+                try {
+                    response = worker.handle(request);
+                    succeeded = true;
+                } catch (RuntimeException e) {
+                    response = e;
+                    succeeded = false;
+                }
+                respond(out, succeeded, response);
+            }
+        } catch (IOException e) {
+            // connection closed by the client, or unusable
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static void respond(ObjectOutputStream out, boolean succeeded, Object response) throws IOException {
+        out.writeBoolean(succeeded);
+        out.writeObject(response);
+        out.reset();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Arguments: the port, followed by the patterns of additional key and value classes.
+     */
+    public static void main(String[] args) throws Exception {
+        final ShardServer server = start(Integer.parseInt(args[0]), Arrays.copyOfRange(args, 1, args.length));
+        System.out.println("shard listening on port " + server.port());
+        Thread.currentThread().join();
+    }
+}
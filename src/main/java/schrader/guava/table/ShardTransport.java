@@ -0,0 +1,18 @@
+package schrader.guava.table;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Closeable;
+
+/**
+ * Carries {@link ShardRequest}s to the shards of a {@link ShardedTable}.
+ *
+ * @see InProcessTransport
+ * @see SocketTransport
+ */
+public interface ShardTransport extends Closeable {
+
+    int shardCount();
+
+    <T> ListenableFuture<T> send(int shard, ShardRequest<T> request);
+}
@@ -0,0 +1,16 @@
+package schrader.guava.table;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+
+/**
+ * The rows of one shard, held in a {@link HashBasedTable}. Requests are executed one at a time.
+ */
+public final class ShardWorker {
+
+    private final Table<Object, Object, Object> table = HashBasedTable.create();
+
+    public synchronized <T> T handle(ShardRequest<T> request) {
+        return request.execute(table);
+    }
+}
@@ -0,0 +1,275 @@
+package schrader.guava.table;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link Table} whose rows are partitioned over the shards of a {@link ShardTransport}.
+ * <p>
+ * Operations on a single row go to the shard owning that row. Operations on a column or the
+ * whole table are sent to all shards at once and their responses merged (scatter-gather).
+ * {@link #putAll} and {@link #getAll} send one batch per shard.
+ * <p>
+ * Unlike the in-memory tables, the views returned by {@link #row}, {@link #column},
+ * {@link #cellSet}, {@link #rowMap} and the like are immutable snapshots, not live views. Null
+ * keys and values are not allowed.
+ */
+public final class ShardedTable<R, C, V> implements Table<R, C, V> {
+
+    private final ShardTransport transport;
+    private final ShardPartitioner<? super R> partitioner;
+
+    private ShardedTable(ShardTransport transport, ShardPartitioner<? super R> partitioner) {
+        this.transport = checkNotNull(transport);
+        this.partitioner = checkNotNull(partitioner);
+    }
+
+    public static <R, C, V> ShardedTable<R, C, V> create(ShardTransport transport) {
+        return new ShardedTable<>(transport, ShardPartitioner.hash());
+    }
+
+    public static <R, C, V> ShardedTable<R, C, V> create(ShardTransport transport,
+                                                       ShardPartitioner<? super R> partitioner) {
+        return new ShardedTable<>(transport, partitioner);
+    }
+
+    /**
+     * Stores all cells of {@code table}, with one request per shard.
+     */
+    @Override
+    public void putAll(Table<? extends R, ? extends C, ? extends V> table) {
+        final List<ImmutableTable.Builder<Object, Object, Object>> batches = Lists.newArrayList();
+        for (int i = 0; i < transport.shardCount(); i++) {
+            batches.add(ImmutableTable.builder());
+        }
+        for (Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet()) {
+            batches.get(shardOf(cell.getRowKey())).put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+        }
+        final List<ListenableFuture<Boolean>> responses = Lists.newArrayList();
+        for (int i = 0; i < batches.size(); i++) {
+            final ImmutableTable<Object, Object, Object> batch = batches.get(i).build();
+            if (!batch.isEmpty()) {
+                responses.add(transport.send(i, ShardRequests.putAll(batch)));
+            }
+        }
+        Futures.getUnchecked(Futures.allAsList(responses));
+    }
+
+    /**
+     * Looks up the given cells, with one request per shard. Cells without a value, including those
+     * whose row is in no shard, are missing from the result.
+     */
+    @SuppressWarnings("unchecked")
+    public ImmutableTable<R, C, V> getAll(Multimap<? extends R, ? extends C> cells) {
+        final List<ImmutableMultimap.Builder<Object, Object>> batches = Lists.newArrayList();
+        for (int i = 0; i < transport.shardCount(); i++) {
+            batches.add(ImmutableMultimap.builder());
+        }
+        for (Map.Entry<? extends R, ? extends C> cell : cells.entries()) {
+            if (isPartitionable(cell.getKey())) {
+                batches.get(shardOf(cell.getKey())).put(cell.getKey(), cell.getValue());
+            }
+        }
+        final List<ListenableFuture<ImmutableTable<Object, Object, Object>>> responses = Lists.newArrayList();
+        for (int i = 0; i < batches.size(); i++) {
+            final ImmutableMultimap<Object, Object> batch = batches.get(i).build();
+            if (!batch.isEmpty()) {
+                responses.add(transport.send(i, ShardRequests.getAll(batch)));
+            }
+        }
+        final ImmutableTable.Builder<R, C, V> result = ImmutableTable.builder();
+        for (ImmutableTable<Object, Object, Object> found : Futures.getUnchecked(Futures.allAsList(responses))) {
+            result.putAll((Table<R, C, V>) (Table<?, ?, ?>) found);
+        }
+        return result.build();
+    }
+
+    @Override
+    public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+        return columnKey != null && isPartitionable(rowKey) && ownerOf(rowKey, ShardRequests.contains(rowKey, columnKey));
+    }
+
+    @Override
+    public boolean containsRow(@Nullable Object rowKey) {
+        return isPartitionable(rowKey) && ownerOf(rowKey, ShardRequests.containsRow(rowKey));
+    }
+
+    @Override
+    public boolean containsColumn(@Nullable Object columnKey) {
+        return columnKey != null && gather(ShardRequests.containsColumn(columnKey)).contains(true);
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object value) {
+        return value != null && gather(ShardRequests.containsValue(value)).contains(true);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+        return columnKey == null || !isPartitionable(rowKey)
+                ? null
+                : (V) ownerOf(rowKey, ShardRequests.get(rowKey, columnKey));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Integer shardSize : gather(ShardRequests.size())) {
+            size += shardSize;
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        gather(ShardRequests.clear());
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(R rowKey, C columnKey, V value) {
+        checkNotNull(rowKey);
+        checkNotNull(columnKey);
+        checkNotNull(value);
+        return (V) ownerOf(rowKey, ShardRequests.put(rowKey, columnKey, value));
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+        return columnKey == null || !isPartitionable(rowKey)
+                ? null
+                : (V) ownerOf(rowKey, ShardRequests.remove(rowKey, columnKey));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<C, V> row(R rowKey) {
+        checkNotNull(rowKey);
+        return isPartitionable(rowKey) ? (Map<C, V>) ownerOf(rowKey, ShardRequests.row(rowKey)) : ImmutableMap.of();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<R, V> column(C columnKey) {
+        final ImmutableMap.Builder<R, V> column = ImmutableMap.builder();
+        for (ImmutableMap<Object, Object> part : gather(ShardRequests.column(checkNotNull(columnKey)))) {
+            column.putAll((Map<R, V>) (Map<?, ?>) part);
+        }
+        return column.build();
+    }
+
+    @Override
+    public ImmutableSet<Cell<R, C, V>> cellSet() {
+        return snapshot().cellSet();
+    }
+
+    @Override
+    public ImmutableSet<R> rowKeySet() {
+        return snapshot().rowKeySet();
+    }
+
+    @Override
+    public ImmutableSet<C> columnKeySet() {
+        return snapshot().columnKeySet();
+    }
+
+    @Override
+    public ImmutableCollection<V> values() {
+        return snapshot().values();
+    }
+
+    @Override
+    public ImmutableMap<R, Map<C, V>> rowMap() {
+        return snapshot().rowMap();
+    }
+
+    @Override
+    public ImmutableMap<C, Map<R, V>> columnMap() {
+        return snapshot().columnMap();
+    }
+
+    /**
+     * Returns an immutable copy of all shards.
+     */
+    @SuppressWarnings("unchecked")
+    public ImmutableTable<R, C, V> snapshot() {
+        final ImmutableTable.Builder<R, C, V> snapshot = ImmutableTable.builder();
+        for (ImmutableTable<Object, Object, Object> shard : gather(ShardRequests.snapshot())) {
+            snapshot.putAll((Table<R, C, V>) (Table<?, ?, ?>) shard);
+        }
+        return snapshot.build();
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj == this || obj instanceof Table && cellSet().equals(((Table<?, ?, ?>) obj).cellSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return cellSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return rowMap().toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int shardOf(Object rowKey) {
+        return partitioner.shardOf((R) rowKey, transport.shardCount());
+    }
+
+    /**
+     * A null row key, or one the partitioner cannot handle (of the wrong type, or without a stable
+     * hash code), is in no shard.
+     */
+    private boolean isPartitionable(@Nullable Object rowKey) {
+        if (rowKey == null) {
+            return false;
+        }
+        try {
+            shardOf(rowKey);
+            return true;
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private <T> T ownerOf(Object rowKey, ShardRequest<T> request) {
+        return Futures.getUnchecked(transport.send(shardOf(rowKey), request));
+    }
+
+    private <T> ImmutableList<T> gather(ShardRequest<T> request) {
+        final List<ListenableFuture<T>> responses = Lists.newArrayList();
+        for (int i = 0; i < transport.shardCount(); i++) {
+            responses.add(transport.send(i, request));
+        }
+        return ImmutableList.copyOf(Futures.getUnchecked(Futures.allAsList(responses)));
+    }
+}
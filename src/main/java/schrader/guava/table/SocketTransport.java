@@ -0,0 +1,122 @@
+package schrader.guava.table;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Sends requests to {@link ShardServer}s over TCP, one connection per shard. Requests to the same
+ * shard are sent one after another, requests to different shards concurrently.
+ */
+public final class SocketTransport implements ShardTransport {
+
+    private final ImmutableList<Connection> connections;
+    private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+            Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "socket-transport");
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    private SocketTransport(List<HostAndPort> shards) {
+        checkArgument(!shards.isEmpty(), "no shards");
+        final ImmutableList.Builder<Connection> connections = ImmutableList.builder();
+        for (HostAndPort shard : shards) {
+            connections.add(new Connection(shard));
+        }
+        this.connections = connections.build();
+    }
+
+    /**
+     * Creates a transport to the given shard servers; shard {@code i} is served by the
+     * {@code i}-th address. Connections are opened on first use.
+     */
+    public static SocketTransport connect(List<HostAndPort> shards) {
+        return new SocketTransport(shards);
+    }
+
+    @Override
+    public int shardCount() {
+        return connections.size();
+    }
+
+    @Override
+    public <T> ListenableFuture<T> send(int shard, ShardRequest<T> request) {
+        checkElementIndex(shard, connections.size());
+        return executor.submit(() -> connections.get(shard).call(request));
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+
+        private final HostAndPort address;
+        private Socket socket;
+        private ObjectOutputStream out;
+        private ObjectInputStream in;
+
+        Connection(HostAndPort address) {
+            this.address = address;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized <T> T call(ShardRequest<T> request) throws IOException, ClassNotFoundException {
+            if (socket == null) {
+                socket = new Socket(address.getHost(), address.getPort());
+                socket.setTcpNoDelay(true);
+                out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.flush();
+                in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            }
+            final boolean succeeded;
+            final Object response;
+            try {
+                out.writeObject(request);
+                out.reset();
+                out.flush();
+                succeeded = in.readBoolean();
+                response = in.readObject();
+            } catch (IOException e) {
+                // the stream state is unknown now; reconnect on the next call
+                close();
+                throw e;
+            }
+            if (!succeeded && response instanceof IOException) {
+                // the shard could not read the request and has closed the connection
+                close();
+                throw (IOException) response;
+            }
+            if (!succeeded) {
+                throw (RuntimeException) response;
+            }
+            return (T) response;
+        }
+
+        synchronized void close() throws IOException {
+            if (socket != null) {
+                socket.close();
+                socket = null;
+            }
+        }
+    }
+}
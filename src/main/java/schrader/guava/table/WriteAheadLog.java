@@ -0,0 +1,297 @@
+package schrader.guava.table;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An append-only log of opaque records, split into numbered segment files.
+ * <p>
+ * Appends are committed in groups: a single committer thread takes all records queued while it
+ * was busy, writes them with one gathering write and makes them durable with one
+ * {@link FileChannel#force}. The future returned by {@link #append} completes once its record is
+ * durable.
+ * <p>
+ * Every record is stored as its length, its CRC32 and its payload, so a record torn by a crash is
+ * detected on {@link #replay} and cut off. Payloads must not be empty, so that a zero-filled tail
+ * left behind by a crash is not mistaken for records.
+ * <p>
+ * Once the log is closed or has failed, the futures of further appends fail.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private FileChannel channel;
+    private long segment;
+    private volatile IOException failure;
+    private volatile long syncCount;
+    /**
+     * Set when the committer has stopped; fails the entries it will never take.
+     */
+    private volatile IOException stopped;
+
+    /**
+     * A record to write, or (without payload) a request to switch to the next segment.
+     */
+    private static final class Entry {
+
+        final byte[] payload;
+        final SettableFuture<Long> done = SettableFuture.create();
+
+        Entry(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+    private final Entry close = new Entry(null);
+
+    private WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.committer = new Thread(this::commitLoop, "wal-committer-" + directory.getFileName());
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Opens the log for appending to {@code segment}, which is created if needed.
+     */
+    static WriteAheadLog open(Path directory, long segment) throws IOException {
+        return new WriteAheadLog(directory, segment);
+    }
+
+    /**
+     * Queues a record; the future completes with the record's segment once it is durable.
+     */
+    ListenableFuture<Long> append(byte[] payload) {
+        checkArgument(payload.length > 0, "empty record");
+        return enqueue(new Entry(payload));
+    }
+
+    /**
+     * Makes all records queued so far durable and continues in a new segment. The future completes
+     * with the number of the new segment.
+     */
+    ListenableFuture<Long> rotate() {
+        return enqueue(new Entry(null));
+    }
+
+    private ListenableFuture<Long> enqueue(Entry entry) {
+        if (stopped == null) {
+            queue.add(entry);
+        }
+        // the committer may have stopped meanwhile and will never take this entry
+        final IOException reason = stopped;
+        if (reason != null) {
+            entry.done.setException(reason);
+        }
+        return entry.done;
+    }
+
+    private void commitLoop() {
+        final List<Entry> batch = Lists.newArrayList();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                final List<Entry> records = Lists.newArrayList();
+                for (Entry entry : batch) {
+                    if (entry == close) {
+                        commit(records);
+                        channel.close();
+                        entry.done.set(segment);
+                        stop(new IOException("write-ahead log is closed"));
+                        return;
+                    }
+                    if (entry.payload != null) {
+                        records.add(entry);
+                        continue;
+                    }
+                    commit(records);
+                    records.clear();
+                    channel.close();
+                    channel = openSegment(++segment);
+                    entry.done.set(segment);
+                }
+                commit(records);
+                batch.clear();
+            }
+        } catch (IOException e) {
+            failure = e;
+            for (Entry entry : batch) {
+                entry.done.setException(e);
+            }
+            stop(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop(new IOException("write-ahead log committer interrupted", e));
+        }
+    }
+
+    private void stop(IOException reason) {
+        stopped = reason;
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            entry.done.setException(reason);
+        }
+    }
+
+    private void commit(List<Entry> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        final ByteBuffer[] buffers = new ByteBuffer[2 * records.size()];
+        final CRC32 crc = new CRC32();
+        for (int i = 0; i < records.size(); i++) {
+            final byte[] payload = records.get(i).payload;
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            buffers[2 * i] = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(payload.length).putInt((int) crc.getValue()).flip();
+            buffers[2 * i + 1] = ByteBuffer.wrap(payload);
+        }
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+        // written by the committer thread only
+        syncCount++;
+        for (Entry record : records) {
+            record.done.set(segment);
+        }
+    }
+
+    /**
+     * Number of times records have been forced to disk; each covers a whole group of appends.
+     */
+    long syncCount() {
+        return syncCount;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        final FileChannel opened = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    /**
+     * Commits what is queued and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        queue.add(close);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+    }
+
+    /**
+     * Returns the numbers of all segments in {@code directory}, ascending.
+     */
+    static ImmutableList<Long> segments(Path directory) throws IOException {
+        final List<Long> numbers = Lists.newArrayList();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        return ImmutableList.sortedCopyOf(Ordering.natural(), numbers);
+    }
+
+    /**
+     * Passes the records of all segments from {@code fromSegment} on to {@code consumer}, in
+     * order. A torn or corrupt record at the end of the last segment is cut off; anywhere else it
+     * fails the replay.
+     *
+     * @return the number of the last segment, or {@code fromSegment} if there is none
+     */
+    static long replay(Path directory, long fromSegment, Consumer<byte[]> consumer) throws IOException {
+        final ImmutableList<Long> segments = segments(directory);
+        long last = fromSegment;
+        for (int i = 0; i < segments.size(); i++) {
+            final long number = segments.get(i);
+            if (number < fromSegment) {
+                continue;
+            }
+            last = number;
+            final boolean isLast = i == segments.size() - 1;
+            try (FileChannel segment = FileChannel.open(segmentPath(directory, number),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final long valid = replaySegment(segment, consumer);
+                if (valid < segment.size()) {
+                    if (!isLast) {
+                        throw new IOException("corrupt record in " + segmentPath(directory, number) + " at " + valid);
+                    }
+                    segment.truncate(valid);
+                    segment.force(true);
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Returns the position after the last valid record.
+     */
+    private static long replaySegment(FileChannel segment, Consumer<byte[]> consumer) throws IOException {
+        final ByteBuffer buffer = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+        final CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            // payloads are never empty; a zero length is a zero-filled tail
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            consumer.accept(payload);
+        }
+        return buffer.position();
+    }
+}
@@ -0,0 +1,111 @@
+package schrader.guava.test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import schrader.guava.base.CompiledFunction;
+import schrader.guava.base.CompiledFunctions;
+import schrader.guava.base.CompiledPredicate;
+import schrader.guava.base.CompiledPredicates;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class CompiledPredicatesTest {
+
+    private final List<String> names = Lists.newArrayList("John", "Jane", "Adam", "Tom");
+
+    @Test
+    public void filterWithMultiplePredicates() {
+        final Collection<String> result = Collections2.filter(names, CompiledPredicates.or(
+                CompiledPredicates.containsPattern("J"),
+                CompiledPredicates.not(CompiledPredicates.containsPattern("a"))));
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result).containsExactlyInAnyOrder("John", "Jane", "Tom");
+    }
+
+    @Test
+    public void filterOnlyNonNull() {
+        final List<String> names = Lists.newArrayList("John", null, "Jane", null, "Adam", "Tom");
+        final Collection<String> result = Collections2.filter(names, CompiledPredicates.<String>notNull());
+        assertThat(result).containsExactlyInAnyOrder("John", "Jane", "Adam", "Tom");
+        assertThat(Collections2.filter(names, CompiledPredicates.of(Predicates.<String>isNull()))).hasSize(2);
+    }
+
+    @Test
+    public void sameResultsAsGuavaPredicates() {
+        final Predicate<String> startsWithJ = input -> input.startsWith("J");
+        final Predicate<String> guava = Predicates.and(Predicates.notNull(),
+                Predicates.or(startsWithJ, Predicates.containsPattern("m$")), Predicates.not(Predicates.equalTo("Jane")));
+        final Predicate<String> compiled = CompiledPredicates.and(CompiledPredicates.<String>notNull(),
+                CompiledPredicates.or(startsWithJ, CompiledPredicates.containsPattern("m$")),
+                CompiledPredicates.not(CompiledPredicates.<String>equalTo("Jane")));
+        final List<String> inputs = Lists.newArrayList("John", null, "Jane", "Adam", "Tom", "Jim", "Anna");
+        for (String input : inputs) {
+            assertThat(compiled.apply(input)).isEqualTo(guava.apply(input));
+        }
+    }
+
+    @Test
+    public void shortCircuits() {
+        final Predicate<String> failing = input -> {
+            throw new IllegalStateException();
+        };
+        assertThat(CompiledPredicates.and(CompiledPredicates.<String>alwaysFalse(), failing).apply("x")).isFalse();
+        assertThat(CompiledPredicates.or(CompiledPredicates.<String>alwaysTrue(), failing).apply("x")).isTrue();
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> CompiledPredicates.and(CompiledPredicates.<String>alwaysTrue(), failing).apply("x"));
+    }
+
+    @Test
+    public void emptyCompositions() {
+        assertThat(CompiledPredicates.<String>and().apply("x")).isTrue();
+        assertThat(CompiledPredicates.<String>or().apply("x")).isFalse();
+    }
+
+    @Test
+    public void usableAsJavaUtilFunctionTypes() {
+        final CompiledPredicate<Object> isString = CompiledPredicates.instanceOf(String.class);
+        final java.util.function.Predicate<Object> predicate = isString;
+        assertThat(Lists.<Object>newArrayList(1, "uno", 2.0, "due").stream().filter(predicate).collect(Collectors.toList()))
+                .containsExactly("uno", "due");
+        final java.util.function.Function<String, Integer> length = CompiledFunctions.of(String::length);
+        assertThat(names.stream().map(length).collect(Collectors.toList())).containsExactly(4, 4, 4, 3);
+    }
+
+    @Test
+    public void transformWithComposedFunction() {
+        final Function<String, Integer> mapper1 = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String element) {
+                return element.length();
+            }
+        };
+        final Function<Integer, Boolean> mapper2 = new Function<Integer, Boolean>() {
+            @Override
+            public Boolean apply(Integer element) {
+                return element % 2 == 0;
+            }
+        };
+        final CompiledFunction<String, Boolean> composed = CompiledFunctions.compose(mapper2, mapper1);
+        final Collection<Boolean> result = Collections2.transform(names, composed);
+        assertThat(result).containsExactly(true, true, true, false);
+        final CompiledFunction<String, String> chained = CompiledFunctions.compose(
+                CompiledFunctions.<Boolean, String>of(String::valueOf), composed);
+        assertThat(chained.apply("Tom")).isEqualTo("false");
+    }
+
+    @Test
+    public void createFunctionFromAPredicate() {
+        final Collection<Boolean> result = Collections2.transform(names,
+                CompiledFunctions.forPredicate(CompiledPredicates.containsPattern("m")));
+        assertThat(result).containsExactly(false, false, true, true);
+    }
+}
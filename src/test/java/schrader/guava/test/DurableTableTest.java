@@ -0,0 +1,169 @@
+package schrader.guava.test;
+
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import schrader.guava.table.DurableTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class DurableTableTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void putUniversityCourseSeats(Table<String, String, Integer> table) {
+        table.put("Mumbai", "Chemical", 120);
+        table.put("Mumbai", "IT", 60);
+        table.put("Harvard", "Electrical", 60);
+        table.put("Harvard", "IT", 120);
+        table.put("Oxford", "IT", 80);
+    }
+
+    private static List<Path> files(Path directory, String glob) throws IOException {
+        final List<Path> files = Lists.newArrayList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    @Test
+    public void givenDurableTable_whenReopened_recoversMutations() throws Exception {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            putUniversityCourseSeats(table);
+            assertThat(table.remove("Oxford", "IT")).isEqualTo(80);
+            assertThat(table.remove("Oxford", "IT")).isNull();
+            assertThat(table.put("Mumbai", "IT", 90)).isEqualTo(60);
+        }
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(4);
+            assertThat(table.get("Mumbai", "IT")).isEqualTo(90);
+            assertThat(table.containsRow("Oxford")).isFalse();
+            assertThat(table.row("Harvard")).hasSize(2);
+
+            table.clear();
+            table.putAll(ImmutableTable.of("Oxford", "Chemical", 40));
+        }
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(1);
+            assertThat(table.get("Oxford", "Chemical")).isEqualTo(40);
+        }
+    }
+
+    @Test
+    public void givenTornRecord_whenReopened_recoversCommittedPrefix() throws Exception {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            putUniversityCourseSeats(table);
+        }
+        final Path segment = files(directory, "wal-*.log").get(0);
+        // simulate a crash in the middle of the last write
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(4);
+            assertThat(table.contains("Oxford", "IT")).isFalse();
+            table.put("Oxford", "IT", 85);
+        }
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(5);
+            assertThat(table.get("Oxford", "IT")).isEqualTo(85);
+        }
+    }
+
+    @Test
+    public void givenZeroFilledTail_whenReopened_truncatesIt() throws Exception {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            putUniversityCourseSeats(table);
+        }
+        final Path segment = files(directory, "wal-*.log").get(0);
+        final long committed = Files.size(segment);
+        // some file systems leave zeros behind after a crash
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(16));
+        }
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(5);
+            assertThat(Files.size(segment)).isEqualTo(committed);
+        }
+    }
+
+    @Test
+    public void givenClosedTable_whenAccessed_throwsIllegalStateException() throws Exception {
+        final DurableTable<String, String, Integer> table = DurableTable.open(temporaryFolder.getRoot().toPath());
+        putUniversityCourseSeats(table);
+        table.close();
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> table.put("Oxford", "IT", 85));
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> table.get("Oxford", "IT"));
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(table::snapshot);
+        table.close();
+    }
+
+    @Test
+    public void givenSnapshot_whenReopened_replaysOnlyLogTail() throws Exception {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            putUniversityCourseSeats(table);
+            table.snapshot();
+            table.put("Oxford", "Chemical", 40);
+            table.remove("Mumbai", "Chemical");
+        }
+        assertThat(files(directory, "snapshot-*.bin")).hasSize(1);
+        assertThat(files(directory, "wal-*.log")).hasSize(1);
+        try (DurableTable<String, String, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(5);
+            assertThat(table.get("Oxford", "Chemical")).isEqualTo(40);
+            assertThat(table.contains("Mumbai", "Chemical")).isFalse();
+        }
+    }
+
+    @Test
+    public void givenConcurrentWriters_whenReopened_recoversEveryCell() throws Exception {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final long syncCount;
+        try (DurableTable<Integer, Integer, Integer> table = DurableTable.open(directory, 1_000)) {
+            final List<Future<?>> writers = Lists.newArrayList();
+            for (int writer = 0; writer < 8; writer++) {
+                final int row = writer;
+                writers.add(executor.submit(() -> {
+                    for (int column = 0; column < 500; column++) {
+                        table.put(row, column, row * column);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            syncCount = table.syncCount();
+        } finally {
+            executor.shutdown();
+        }
+        try (DurableTable<Integer, Integer, Integer> table = DurableTable.open(directory)) {
+            assertThat(table.size()).isEqualTo(4_000);
+            assertThat(table.get(7, 499)).isEqualTo(7 * 499);
+        }
+        // writers waiting for the same fsync were committed together
+        assertThat(syncCount).isLessThan(2_000);
+    }
+}
@@ -0,0 +1,74 @@
+package schrader.guava.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import schrader.guava.collect.FastIterables;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class FastIterablesTest {
+
+    @Test
+    public void concatIterables() {
+        final List<String> list1 = Lists.newArrayList("uno");
+        final List<String> list2 = Lists.newArrayList("due", "tre");
+        final List<String> list3 = Lists.newArrayList("quattro", "cinque");
+        final List<String> concatenated = FastIterables.concat(list1, list2, list3);
+        assertThat(concatenated).hasSize(5).containsExactly("uno", "due", "tre", "quattro", "cinque");
+        assertThat(concatenated.get(0)).isEqualTo("uno");
+        assertThat(concatenated.get(2)).isEqualTo("tre");
+        assertThat(concatenated.get(4)).isEqualTo("cinque");
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> concatenated.get(5));
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> concatenated.add("sei"));
+    }
+
+    @Test
+    public void concatSkipsEmptyPartsAndCopiesNonRandomAccessParts() {
+        final List<String> concatenated = FastIterables.concat(
+                Lists.<String>newArrayList(), Sets.newLinkedHashSet(Lists.newArrayList("uno", "due")),
+                ImmutableList.<String>of(), Lists.newLinkedList(Lists.newArrayList("tre")));
+        assertThat(concatenated).containsExactly("uno", "due", "tre");
+        assertThat(concatenated.get(2)).isEqualTo("tre");
+        assertThat(concatenated.toArray()).isEqualTo(new Object[]{"uno", "due", "tre"});
+    }
+
+    @Test
+    public void concatSplitsForParallelStreams() {
+        final List<List<Integer>> parts = Lists.newArrayList();
+        for (int part = 0; part < 100; part++) {
+            parts.add(IntStream.range(part * 1_000, (part + 1) * 1_000).boxed().collect(Collectors.toList()));
+        }
+        final List<Integer> concatenated = FastIterables.concat(parts);
+        assertThat(concatenated.get(54_321)).isEqualTo(54_321);
+        assertThat(concatenated.parallelStream().mapToLong(Integer::longValue).sum()).isEqualTo(99_999L * 100_000 / 2);
+        assertThat(concatenated.parallelStream().collect(Collectors.toList())).isEqualTo(concatenated);
+    }
+
+    @Test
+    public void equalLists() {
+        final Iterable<String> list = Lists.newArrayList("A", "B", "C");
+        final Iterable<String> list2 = Lists.newArrayList("A", "B", "C");
+        assertThat(FastIterables.elementsEqual(list, list2)).isTrue();
+        assertThat(FastIterables.elementsEqual(list, Lists.newArrayList("A", "B", "D"))).isFalse();
+        assertThat(FastIterables.elementsEqual(list, Lists.newArrayList("A", "B"))).isFalse();
+        assertThat(FastIterables.elementsEqual(list, Lists.newLinkedList(list2))).isTrue();
+        assertThat(FastIterables.elementsEqual(list, FastIterables.concat(Lists.newArrayList("A"), list2)))
+                .isFalse();
+    }
+
+    @Test
+    public void equalImmutableSets() {
+        assertThat(FastIterables.elementsEqual(ImmutableSet.of("A", "B"), ImmutableSet.of("A", "B"))).isTrue();
+        assertThat(FastIterables.elementsEqual(ImmutableSet.of("A", "B"), ImmutableSet.of("A", "C"))).isFalse();
+        // same elements in a different order
+        assertThat(FastIterables.elementsEqual(ImmutableSet.of("A", "B"), ImmutableSet.of("B", "A"))).isFalse();
+    }
+}
@@ -0,0 +1,229 @@
+package schrader.guava.test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+import schrader.guava.reactive.FluentPublisher;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class FluentPublisherTest {
+
+    private enum Status {ISSUED, HANDED_OUT}
+
+    private static class Ballot {
+
+        final int id;
+        final Status status;
+
+        Ballot(int id, Status status) {
+            this.id = id;
+            this.status = status;
+        }
+    }
+
+    private static class RegisterEntry {
+
+        final List<Ballot> ballots;
+
+        RegisterEntry(Ballot... ballots) {
+            this.ballots = ImmutableList.copyOf(ballots);
+        }
+    }
+
+    /**
+     * Endless source counting how many items have been pulled from it.
+     */
+    private static class CountingSource implements Iterable<Integer> {
+
+        final AtomicInteger pulled = new AtomicInteger();
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new AbstractIterator<Integer>() {
+                @Override
+                protected Integer computeNext() {
+                    return pulled.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    /**
+     * Subscriber that only requests what the test asks it to.
+     */
+    private static class ManualSubscriber<T> implements Flow.Subscriber<T> {
+
+        final List<T> received = Lists.newCopyOnWriteArrayList();
+        final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription.set(subscription);
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private final Function<RegisterEntry, List<Ballot>> toBallots = new Function<RegisterEntry, List<Ballot>>() {
+        @Override
+        public List<Ballot> apply(RegisterEntry entry) {
+            return entry.ballots;
+        }
+    };
+
+    private final Predicate<Ballot> handedOut = new Predicate<Ballot>() {
+        @Override
+        public boolean apply(Ballot ballot) {
+            return ballot.status == Status.HANDED_OUT;
+        }
+    };
+
+    private final Function<Ballot, Integer> toId = new Function<Ballot, Integer>() {
+        @Override
+        public Integer apply(Ballot ballot) {
+            return ballot.id;
+        }
+    };
+
+    @Test
+    public void transformAndConcatThenFilterLikeFluentIterable() throws Exception {
+        final List<RegisterEntry> register = Lists.newArrayList(
+                new RegisterEntry(new Ballot(1, Status.HANDED_OUT), new Ballot(2, Status.ISSUED)),
+                new RegisterEntry(),
+                new RegisterEntry(new Ballot(3, Status.HANDED_OUT)),
+                new RegisterEntry(new Ballot(4, Status.ISSUED), new Ballot(5, Status.HANDED_OUT)));
+
+        final List<Integer> expected = FluentIterable.from(register)
+                .transformAndConcat(toBallots).filter(handedOut).transform(toId).toList();
+        final List<Integer> result = FluentPublisher.from(register)
+                .transformAndConcat(toBallots).filter(handedOut).transform(toId).toList().get();
+
+        assertThat(result).isEqualTo(expected);
+        assertThat(result).containsExactly(1, 3, 5);
+    }
+
+    @Test
+    public void largeInputStreamsThrough() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final Iterable<Integer> source = FluentIterable.from(new CountingSource()).limit(1_000_000);
+        FluentPublisher.from(source)
+                .transformAndConcat(i -> Lists.newArrayList(i, -i))
+                .filter(i -> i > 0)
+                .forEach(i -> count.incrementAndGet())
+                .get(10, TimeUnit.SECONDS);
+        assertThat(count.get()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    public void demandIsPropagatedUpstream() {
+        final CountingSource source = new CountingSource();
+        final ManualSubscriber<Integer> subscriber = new ManualSubscriber<>();
+        FluentPublisher.from(source).filter(i -> i % 2 == 0).transform(i -> i * 10).subscribe(subscriber);
+
+        subscriber.subscription.get().request(5);
+        assertThat(subscriber.received).containsExactly(20, 40, 60, 80, 100);
+        // each operator prefetches a bounded buffer, but never the whole (endless) source
+        assertThat(source.pulled.get()).isLessThanOrEqualTo(3 * FluentPublisher.BUFFER_SIZE);
+
+        subscriber.subscription.get().cancel();
+        subscriber.subscription.get().request(5);
+        assertThat(subscriber.received).hasSize(5);
+    }
+
+    @Test
+    public void nonPositiveRequestFailsThePipeline() {
+        final ManualSubscriber<Integer> direct = new ManualSubscriber<>();
+        FluentPublisher.from(new CountingSource()).subscribe(direct);
+        direct.subscription.get().request(2);
+        direct.subscription.get().request(0);
+        assertThat(direct.received).containsExactly(1, 2);
+        assertThat(direct.error.get()).isInstanceOf(IllegalArgumentException.class);
+
+        final ManualSubscriber<Integer> staged = new ManualSubscriber<>();
+        FluentPublisher.from(new CountingSource()).transform(i -> i * 10).subscribe(staged);
+        staged.subscription.get().request(-1);
+        staged.subscription.get().request(5);
+        assertThat(staged.received).isEmpty();
+        assertThat(staged.error.get()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void partition() throws Exception {
+        final FluentPublisher<List<Integer>> partitions = FluentPublisher.from(Lists.newArrayList(1, 2, 3, 4, 5, 6, 7, 8))
+                .partition(3);
+        assertThat(partitions.toList().get()).containsExactly(
+                ImmutableList.of(1, 2, 3), ImmutableList.of(4, 5, 6), ImmutableList.of(7, 8));
+        // every subscriber partitions on its own
+        assertThat(partitions.toList().get()).hasSize(3);
+    }
+
+    @Test
+    public void transformParallelPreservesOrder() throws Exception {
+        final List<Integer> input = Lists.newArrayList();
+        for (int i = 0; i < 200; i++) {
+            input.add(i);
+        }
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Integer> result = FluentPublisher.from(input).transformParallel(i -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Uninterruptibles.sleepUninterruptibly(ThreadLocalRandom.current().nextInt(3), TimeUnit.MILLISECONDS);
+                running.decrementAndGet();
+                return i * 2;
+            }, 4, executor).toList().get(10, TimeUnit.SECONDS);
+            assertThat(result).hasSize(200);
+            assertThat(result.get(0)).isEqualTo(0);
+            assertThat(result.get(199)).isEqualTo(398);
+            assertThat(result).isEqualTo(FluentIterable.from(input).transform(i -> i * 2).toList());
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void failingFunctionFailsThePipeline() {
+        final CountingSource source = new CountingSource();
+        assertThatExceptionOfType(ExecutionException.class).isThrownBy(() -> FluentPublisher.from(source)
+                .transform(i -> {
+                    if (i == 100) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return i;
+                })
+                .toList().get(10, TimeUnit.SECONDS));
+    }
+}
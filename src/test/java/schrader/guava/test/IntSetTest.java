@@ -0,0 +1,140 @@
+package schrader.guava.test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import schrader.guava.collect.DenseIntSet;
+import schrader.guava.collect.IntSet;
+import schrader.guava.collect.RoaringIntSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class IntSetTest {
+
+    @Test
+    public void containsAsSetOfIntegers() {
+        for (IntSet set : Lists.newArrayList(DenseIntSet.of(1, 2, 3), RoaringIntSet.of(1, 2, 3))) {
+            assertThat(set.contains(2)).isTrue();
+            assertThat(set.contains(Integer.valueOf(4))).isFalse();
+            assertThat(set.containsAll(Lists.newArrayList(2, 1, 3))).isTrue();
+            assertThat(set).isEqualTo(Sets.newHashSet(1, 2, 3));
+            assertThat(set.hashCode()).isEqualTo(Sets.newHashSet(1, 2, 3).hashCode());
+            assertThat(Iterables.any(set, input -> input == 2)).isTrue();
+        }
+    }
+
+    @Test
+    public void negativeValuesAreRejected() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> DenseIntSet.create().add(-1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> RoaringIntSet.create().add(-1));
+        assertThat(RoaringIntSet.of(1).contains(-1)).isFalse();
+    }
+
+    @Test
+    public void addAndRemove() {
+        for (IntSet set : Lists.newArrayList(DenseIntSet.create(), RoaringIntSet.create())) {
+            assertThat(set.add(7)).isTrue();
+            assertThat(set.add(7)).isFalse();
+            assertThat(set.add(1_000_000)).isTrue();
+            assertThat(set).hasSize(2);
+            assertThat(set.remove(7)).isTrue();
+            assertThat(set.remove(7)).isFalse();
+            assertThat(set).containsExactly(1_000_000);
+        }
+    }
+
+    @Test
+    public void iteratesInAscendingOrder() {
+        assertThat(DenseIntSet.of(70, 3, 64, 0)).containsExactly(0, 3, 64, 70);
+        assertThat(RoaringIntSet.of(200_000, 3, 65_536, 0)).containsExactly(0, 3, 65_536, 200_000);
+    }
+
+    @Test
+    public void setAlgebra() {
+        final Set<Integer> union = Sets.newHashSet(1, 2, 3, 4, 100_000);
+        final Set<Integer> intersection = Sets.newHashSet(3);
+        final Set<Integer> difference = Sets.newHashSet(1, 2);
+        final IntSet[] lefts = {DenseIntSet.of(1, 2, 3), RoaringIntSet.of(1, 2, 3)};
+        final IntSet[] rights = {DenseIntSet.of(3, 4, 100_000), RoaringIntSet.of(3, 4, 100_000)};
+        for (IntSet left : lefts) {
+            for (IntSet right : rights) {
+                assertThat(left.union(right)).isEqualTo(union);
+                assertThat(left.intersection(right)).isEqualTo(intersection);
+                assertThat(left.difference(right)).isEqualTo(difference);
+                assertThat(left).isEqualTo(Sets.newHashSet(1, 2, 3));
+            }
+        }
+    }
+
+    @Test
+    public void setAlgebraOnLargeSets() {
+        // large enough to switch both implementations to parallel algebra and bitmap containers
+        final DenseIntSet evenDense = DenseIntSet.create();
+        final DenseIntSet thirdDense = DenseIntSet.create();
+        final RoaringIntSet evenRoaring = RoaringIntSet.create();
+        final RoaringIntSet thirdRoaring = RoaringIntSet.create();
+        final int limit = 5_000_000;
+        for (int i = 0; i < limit; i += 2) {
+            evenDense.add(i);
+            evenRoaring.add(i);
+        }
+        for (int i = 0; i < limit; i += 3) {
+            thirdDense.add(i);
+            thirdRoaring.add(i);
+        }
+        assertThat(evenDense.intersection(thirdDense).size()).isEqualTo(833_334);
+        assertThat(evenRoaring.intersection(thirdRoaring).size()).isEqualTo(833_334);
+        assertThat(evenDense.union(thirdDense).size()).isEqualTo(3_333_333);
+        assertThat(evenRoaring.union(thirdRoaring).size()).isEqualTo(3_333_333);
+        assertThat(evenRoaring.intersection(thirdRoaring).contains(4_999_998)).isTrue();
+        assertThat(evenRoaring.intersection(thirdRoaring).contains(4_999_996)).isFalse();
+        assertThat(evenRoaring.difference(thirdRoaring).size()).isEqualTo(evenDense.difference(thirdDense).size());
+        assertThat(evenRoaring.containsAll(evenRoaring.intersection(thirdRoaring))).isTrue();
+        assertThat(evenRoaring.containsAll(thirdRoaring)).isFalse();
+        assertThat(evenDense.containsAll(evenDense.intersection(thirdDense))).isTrue();
+        assertThat(evenDense.containsAll(thirdDense)).isFalse();
+    }
+
+    @Test
+    public void roaringSwitchesBetweenSparseAndDenseChunks() {
+        final RoaringIntSet set = RoaringIntSet.create();
+        for (int i = 0; i < 10_000; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            set.remove(i);
+        }
+        assertThat(set).hasSize(5_000);
+        assertThat(set.contains(9_999)).isTrue();
+        assertThat(set.contains(9_998)).isFalse();
+        set.retainAll(Sets.newHashSet(1, 3, 4));
+        assertThat(set).containsExactly(1, 3);
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        final RoaringIntSet roaring = RoaringIntSet.of(1, 65_536, 1_000_000);
+        for (int i = 0; i < 5_000; i++) {
+            roaring.add(i * 3);
+        }
+        for (IntSet set : Lists.newArrayList(DenseIntSet.of(1, 64, 1_000), roaring)) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(set);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                final IntSet copy = (IntSet) in.readObject();
+                assertThat(copy).isEqualTo(set);
+                assertThat(copy.add(7)).isTrue();
+            }
+        }
+    }
+}
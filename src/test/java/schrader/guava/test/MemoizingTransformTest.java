@@ -0,0 +1,145 @@
+package schrader.guava.test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+import schrader.guava.collect.MemoizingFunction;
+import schrader.guava.collect.MemoizingTransform;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoizingTransformTest {
+
+    private static class CountingLength implements Function<String, Integer> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Integer apply(String element) {
+            calls.incrementAndGet();
+            return element.length();
+        }
+    }
+
+    @Test
+    public void lazyTransformReappliesFunction() {
+        final List<String> names = Lists.newArrayList("John", "Jane", "Adam", "Tom");
+        final CountingLength mapper = new CountingLength();
+        final Iterable<Integer> result = Iterables.transform(names, mapper);
+        for (int pass = 0; pass < 2; pass++) {
+            for (Integer length : result) {
+                assertThat(length).isPositive();
+            }
+        }
+        assertThat(mapper.calls.get()).isGreaterThan(names.size());
+    }
+
+    @Test
+    public void memoizingTransformAppliesFunctionOncePerElement() {
+        final List<String> names = Lists.newArrayList("John", "Jane", "Adam", "Tom", "John");
+        final CountingLength mapper = new CountingLength();
+        final Iterable<Integer> result = MemoizingTransform.of(names, mapper);
+        for (int pass = 0; pass < 2; pass++) {
+            final List<Integer> lengths = Lists.newArrayList();
+            for (Integer length : result) {
+                lengths.add(length);
+            }
+            assertThat(lengths).containsExactly(4, 4, 4, 3, 4);
+        }
+        assertThat(mapper.calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void memoizingTransformIsALiveView() {
+        final List<String> names = Lists.newArrayList("John", "Jane");
+        final MemoizingTransform<String, Integer> result = MemoizingTransform.of(names, new CountingLength());
+        names.add("Tom");
+        assertThat(result).containsExactly(4, 4, 3);
+        assertThat(result.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void sharedBoundedCacheAcrossViews() {
+        final CountingLength mapper = new CountingLength();
+        final MemoizingFunction<String, Integer> shared = MemoizingFunction.bounded(mapper, 2);
+        final Iterable<Integer> first = MemoizingTransform.of(Lists.newArrayList("John", "Tom"), shared);
+        final Iterable<Integer> second = MemoizingTransform.of(Lists.newArrayList("Tom", "John"), shared);
+        assertThat(first).containsExactly(4, 3);
+        assertThat(second).containsExactly(3, 4);
+        assertThat(mapper.calls.get()).isEqualTo(2);
+        MemoizingTransform.of(Lists.newArrayList("Adam", "Jane", "Anna"), shared).toList();
+        assertThat(shared.cachedSize()).isLessThanOrEqualTo(2L);
+    }
+
+    @Test
+    public void nullResultsAreMemoized() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Function<String, String> mapper = new Function<String, String>() {
+            @Override
+            public String apply(String element) {
+                calls.incrementAndGet();
+                return null;
+            }
+        };
+        final Iterable<String> result = MemoizingTransform.of(Lists.newArrayList("uno", "uno"), mapper);
+        assertThat(result).containsExactly(null, null);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentComputationsForSameInputAreDeduplicated() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final MemoizingFunction<String, Integer> shared = MemoizingFunction.unbounded(new Function<String, Integer>() {
+            @Override
+            public Integer apply(String element) {
+                calls.incrementAndGet();
+                Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+                return element.length();
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Integer>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return shared.apply("John");
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertThat(future.get()).isEqualTo(4);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void materializeEvaluatesAllElementsAndFillsCache() {
+        final List<String> names = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            names.add("name" + i);
+        }
+        final CountingLength mapper = new CountingLength();
+        final MemoizingTransform<String, Integer> view = MemoizingTransform.of(names, mapper);
+        final List<Integer> materialized = view.materialize();
+        assertThat(materialized).hasSize(1000);
+        assertThat(materialized.get(0)).isEqualTo(5);
+        assertThat(materialized.get(999)).isEqualTo(7);
+        assertThat(Iterables.elementsEqual(view, materialized)).isTrue();
+        assertThat(mapper.calls.get()).isEqualTo(1000);
+    }
+}
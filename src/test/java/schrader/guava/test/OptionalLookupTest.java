@@ -0,0 +1,155 @@
+package schrader.guava.test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+import schrader.guava.concurrent.OptionalLookup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OptionalLookupTest {
+
+    /**
+     * Local stand-in for a downstream store; every call blocks for the given latency.
+     */
+    private static class SlowStore implements Function<String, Integer> {
+
+        private final Map<String, Integer> data = ImmutableMap.of("uno", 1, "due", 2, "tre", 3);
+        private final long latencyMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        SlowStore(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Integer apply(String key) {
+            calls.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Uninterruptibles.sleepUninterruptibly(key.equals("slow") ? 10 * latencyMillis : latencyMillis,
+                        TimeUnit.MILLISECONDS);
+                return data.get(key);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void lookupAllReturnsResultsKeyedByInput() throws Exception {
+        final SlowStore store = new SlowStore(10);
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store).build()) {
+            final Map<String, Optional<Integer>> result = lookup.lookupAll(Lists.newArrayList("tre", "uno", "zero")).get();
+            assertThat(result.keySet()).containsExactly("tre", "uno", "zero");
+            assertThat(result.get("tre")).isEqualTo(Optional.of(3));
+            assertThat(result.get("uno")).isEqualTo(Optional.of(1));
+            assertThat(result.get("zero")).isEqualTo(Optional.absent());
+        }
+    }
+
+    @Test
+    public void duplicateInFlightKeysAreCoalesced() throws Exception {
+        final SlowStore store = new SlowStore(50);
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store).build()) {
+            final ListenableFuture<Optional<Integer>> pending = lookup.lookup("due");
+            final Map<String, Optional<Integer>> result = lookup.lookupAll(Lists.newArrayList("due", "uno", "due")).get();
+            assertThat(result).hasSize(2);
+            assertThat(result.get("due")).isEqualTo(Optional.of(2));
+            assertThat(pending.get()).isEqualTo(Optional.of(2));
+            assertThat(store.calls.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void concurrencyIsBounded() throws Exception {
+        final SlowStore store = new SlowStore(20);
+        final List<String> keys = Lists.newArrayList();
+        for (int i = 0; i < 40; i++) {
+            keys.add("key" + i);
+        }
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store).maxConcurrency(4).build()) {
+            assertThat(lookup.lookupAll(keys).get()).hasSize(40);
+        }
+        assertThat(store.maxRunning.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void timedOutCallIsAbsent() throws Exception {
+        final SlowStore store = new SlowStore(20);
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store)
+                .timeout(100, TimeUnit.MILLISECONDS).build()) {
+            final Map<String, Optional<Integer>> result = lookup.lookupAll(Lists.newArrayList("uno", "slow")).get();
+            assertThat(result.get("uno")).isEqualTo(Optional.of(1));
+            assertThat(result.get("slow")).isEqualTo(Optional.absent());
+        }
+    }
+
+    @Test
+    public void concurrencyIsBoundedWhenCallsTimeOut() throws Exception {
+        final SlowStore store = new SlowStore(100);
+        final List<String> keys = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            keys.add("key" + i);
+        }
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store).maxConcurrency(4)
+                .timeout(10, TimeUnit.MILLISECONDS).build()) {
+            assertThat(lookup.lookupAll(keys).get().values()).containsOnly(Optional.<Integer>absent());
+        }
+        assertThat(store.maxRunning.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void fanOutIsFasterThanSequentialLookups() throws Exception {
+        final SlowStore store = new SlowStore(20);
+        final List<String> keys = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            keys.add("key" + i);
+        }
+
+        final Stopwatch sequential = Stopwatch.createStarted();
+        for (String key : keys) {
+            Optional.fromNullable(store.apply(key));
+        }
+        sequential.stop();
+
+        final ExecutorService pool = Executors.newFixedThreadPool(16);
+        final Stopwatch platformPool = Stopwatch.createStarted();
+        try {
+            final List<Future<Optional<Integer>>> futures = Lists.newArrayList();
+            for (String key : keys) {
+                futures.add(pool.submit(() -> Optional.fromNullable(store.apply(key))));
+            }
+            for (Future<Optional<Integer>> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        platformPool.stop();
+
+        final Stopwatch fanOut = Stopwatch.createStarted();
+        try (OptionalLookup<String, Integer> lookup = OptionalLookup.newBuilder(store).maxConcurrency(16).build()) {
+            lookup.lookupAll(keys).get();
+        }
+        fanOut.stop();
+
+        assertThat(platformPool.elapsed(TimeUnit.MILLISECONDS)).isLessThan(sequential.elapsed(TimeUnit.MILLISECONDS));
+        assertThat(fanOut.elapsed(TimeUnit.MILLISECONDS)).isLessThan(sequential.elapsed(TimeUnit.MILLISECONDS));
+    }
+}
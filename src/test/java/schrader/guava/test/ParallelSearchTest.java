@@ -0,0 +1,94 @@
+package schrader.guava.test;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import schrader.guava.collect.ParallelSearch;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ParallelSearchTest {
+
+    private final ParallelSearch search = ParallelSearch.create();
+
+    private static List<Integer> range(int size) {
+        final List<Integer> list = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    @Test
+    public void findFirstNonNullElementInList() {
+        final List<String> list = Lists.newArrayList(null, "uno", null, "due", "tre");
+        assertThat(search.find(list, Predicates.notNull())).isEqualTo("uno");
+    }
+
+    @Test
+    public void findFirstElementInIterableWithCustomMatcher() {
+        final Iterable<String> iterable = Sets.newLinkedHashSet(Lists.newArrayList("zero", "uno", "due", "otto"));
+        assertThat(search.find(iterable, element -> element.length() == 4)).isEqualTo("zero");
+        assertThat(search.tryFind(iterable, element -> element.length() == 5)).isEqualTo(Optional.absent());
+    }
+
+    @Test
+    public void returnDefaultValueWhenElementNotFound() {
+        assertThat(search.find(range(100_000), i -> i < 0, -1)).isEqualTo(-1);
+        assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(() -> search.find(range(100_000), i -> i < 0));
+    }
+
+    @Test
+    public void findFirstKeepsEncounterOrder() {
+        final List<Integer> list = range(1_000_000);
+        assertThat(search.find(list, i -> i % 100_000 == 99_999)).isEqualTo(99_999);
+        assertThat(search.indexOf(list, i -> i >= 765_432)).isEqualTo(765_432);
+        assertThat(search.tryFind(list, i -> i > 999_998)).isEqualTo(Optional.of(999_999));
+    }
+
+    @Test
+    public void findAnyReturnsSomeMatch() {
+        final List<Integer> list = range(1_000_000);
+        final Optional<Integer> any = search.findAny(list, i -> i % 100_000 == 99_999);
+        assertThat(any.isPresent()).isTrue();
+        assertThat(any.get() % 100_000).isEqualTo(99_999);
+        assertThat(search.findAny(list, i -> i < 0)).isEqualTo(Optional.absent());
+    }
+
+    @Test
+    public void checkIfAnyAndAllElementsMatchACondition() {
+        final List<Integer> list = range(1_000_000);
+        assertThat(search.any(list, i -> i == 500_000)).isTrue();
+        assertThat(search.any(list, i -> i < 0)).isFalse();
+        assertThat(search.all(list, i -> i >= 0)).isTrue();
+        assertThat(search.all(list, i -> i != 500_000)).isFalse();
+        final List<String> names = Lists.newArrayList("John", "Jane", "Adam", "Tom");
+        assertThat(search.all(names, Predicates.containsPattern("n|m"))).isTrue();
+    }
+
+    @Test
+    public void searchStopsOnceDecided() {
+        final List<Integer> list = range(2_000_000);
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Predicate<Integer> predicate = i -> {
+            evaluations.incrementAndGet();
+            return i == 10;
+        };
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertThat(ParallelSearch.create(pool).find(list, predicate)).isEqualTo(10);
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(evaluations.get()).isLessThan(list.size() / 2);
+    }
+}
@@ -0,0 +1,229 @@
+package schrader.guava.test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.google.common.net.HostAndPort;
+import org.junit.Test;
+import schrader.guava.table.InProcessTransport;
+import schrader.guava.table.ShardPartitioner;
+import schrader.guava.table.ShardRequest;
+import schrader.guava.table.ShardServer;
+import schrader.guava.table.ShardedTable;
+import schrader.guava.table.SocketTransport;
+
+import java.io.InvalidClassException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ShardedTableTest {
+
+    private static void putUniversityCourseSeats(Table<String, String, Integer> table) {
+        table.put("Mumbai", "Chemical", 120);
+        table.put("Mumbai", "IT", 60);
+        table.put("Harvard", "Electrical", 60);
+        table.put("Harvard", "IT", 120);
+        table.put("Oxford", "IT", 80);
+    }
+
+    @Test
+    public void givenShardedTable_whenGetAndContains_returnsSuccessfully() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.create(3)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            putUniversityCourseSeats(table);
+
+            assertThat(table.get("Mumbai", "IT")).isEqualTo(60);
+            assertThat(table.get("Oxford", "Chemical")).isNull();
+            assertThat(table.contains("Harvard", "IT")).isTrue();
+            assertThat(table.containsRow("Mumbai")).isTrue();
+            assertThat(table.containsColumn("Electrical")).isTrue();
+            assertThat(table.containsValue(80)).isTrue();
+            assertThat(table.containsValue(81)).isFalse();
+            assertThat(table.size()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void givenShardedTable_whenRowAndColumn_returnsSuccessfully() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.create(3)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            putUniversityCourseSeats(table);
+
+            final Map<String, Integer> courseSeatMap = table.row("Mumbai");
+            assertThat(courseSeatMap).hasSize(2);
+            assertThat(courseSeatMap.get("Chemical")).isEqualTo(120);
+
+            final Map<String, Integer> universitySeatMap = table.column("IT");
+            assertThat(universitySeatMap).hasSize(3);
+            assertThat(universitySeatMap.get("Harvard")).isEqualTo(120);
+
+            assertThat(table.rowKeySet()).containsExactlyInAnyOrder("Mumbai", "Harvard", "Oxford");
+            assertThat(table.columnMap().get("IT")).hasSize(3);
+
+            final Table<String, String, Integer> local = HashBasedTable.create();
+            putUniversityCourseSeats(local);
+            assertThat(table.equals(local)).isTrue();
+            assertThat(table.hashCode()).isEqualTo(local.hashCode());
+        }
+    }
+
+    @Test
+    public void givenShardedTable_whenRemove_returnsSuccessfully() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.create(2)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            table.put("Mumbai", "Chemical", 120);
+            table.put("Mumbai", "IT", 60);
+
+            assertThat(table.remove("Mumbai", "IT")).isEqualTo(60);
+            assertThat(table.remove("Mumbai", "IT")).isNull();
+            table.clear();
+            assertThat(table.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void putAllAndGetAllSendOneBatchPerShard() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.create(4)) {
+            final ShardedTable<Integer, String, Integer> table = ShardedTable.create(transport);
+            final ImmutableTable.Builder<Integer, String, Integer> seats = ImmutableTable.builder();
+            for (int row = 0; row < 100; row++) {
+                seats.put(row, "IT", row);
+            }
+            table.putAll(seats.build());
+            assertThat(transport.requestCount()).isLessThanOrEqualTo(4L);
+
+            final ImmutableTable<Integer, String, Integer> found =
+                    table.getAll(ImmutableMultimap.of(1, "IT", 42, "IT", 42, "Chemical", 1000, "IT"));
+            assertThat(found.size()).isEqualTo(2);
+            assertThat(found.get(42, "IT")).isEqualTo(42);
+            assertThat(transport.requestCount()).isLessThanOrEqualTo(8L);
+        }
+    }
+
+    @Test
+    public void rangePartitioningRoutesRowsToTheirShard() throws Exception {
+        final ShardPartitioner<String> partitioner = ShardPartitioner.range(Lists.newArrayList("H", "N"));
+        assertThat(partitioner.shardOf("Delhi", 3)).isEqualTo(0);
+        assertThat(partitioner.shardOf("Harvard", 3)).isEqualTo(1);
+        assertThat(partitioner.shardOf("N", 3)).isEqualTo(2);
+        assertThat(partitioner.shardOf("Oxford", 3)).isEqualTo(2);
+
+        try (InProcessTransport transport = InProcessTransport.create(3)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport, partitioner);
+            putUniversityCourseSeats(table);
+            assertThat(table.get("Oxford", "IT")).isEqualTo(80);
+            assertThat(table.column("IT")).hasSize(3);
+        }
+    }
+
+    @Test
+    public void columnQueriesScatterToAllShardsConcurrently() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.withLatency(8, 50, TimeUnit.MILLISECONDS)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            table.column("IT");
+            // one round trip, not one per shard
+            assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isLessThan(8 * 50L);
+        }
+    }
+
+    @Test
+    public void loopbackTcpShards() throws Exception {
+        final List<ShardServer> servers = Lists.newArrayList(ShardServer.start(0), ShardServer.start(0));
+        final List<HostAndPort> addresses = Lists.newArrayList();
+        for (ShardServer server : servers) {
+            addresses.add(HostAndPort.fromParts("localhost", server.port()));
+        }
+        try (SocketTransport transport = SocketTransport.connect(addresses)) {
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            putUniversityCourseSeats(table);
+            assertThat(table.get("Mumbai", "IT")).isEqualTo(60);
+            assertThat(table.column("IT")).hasSize(3);
+            assertThat(table.row("Harvard")).hasSize(2);
+            assertThat(table.size()).isEqualTo(5);
+
+            final ImmutableTable.Builder<String, String, Integer> seats = ImmutableTable.builder();
+            for (int i = 0; i < 20; i++) {
+                seats.put("University" + i, "IT", i);
+            }
+            table.putAll(seats.build());
+            assertThat(table.size()).isEqualTo(25);
+            assertThat(table.getAll(ImmutableMultimap.of("University3", "IT", "University17", "IT", "Mumbai", "IT")))
+                    .isEqualTo(ImmutableTable.builder().put("University3", "IT", 3).put("University17", "IT", 17)
+                            .put("Mumbai", "IT", 60).build());
+            assertThat(table.cellSet()).hasSize(25);
+            assertThat(table.cellSet()).contains(Tables.immutableCell("University17", "IT", 17));
+        } finally {
+            for (ShardServer server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    private enum Campus {NORTH, SOUTH}
+
+    /**
+     * Stands in for any class the shard server was not told about.
+     */
+    private static class ForeignRequest implements ShardRequest<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Integer execute(Table<Object, Object, Object> shard) {
+            return shard.size();
+        }
+    }
+
+    @Test
+    public void loopbackTcpShardRejectsUnexpectedClasses() throws Exception {
+        try (ShardServer server = ShardServer.start(0);
+             SocketTransport transport = SocketTransport.connect(
+                     Lists.newArrayList(HostAndPort.fromParts("localhost", server.port())))) {
+            assertThatExceptionOfType(ExecutionException.class)
+                    .isThrownBy(() -> transport.send(0, new ForeignRequest()).get())
+                    .withCauseInstanceOf(InvalidClassException.class);
+
+            final ShardedTable<String, String, Integer> table = ShardedTable.create(transport);
+            table.put("Mumbai", "IT", 60);
+            assertThat(table.get("Mumbai", "IT")).isEqualTo(60);
+        }
+    }
+
+    @Test
+    public void hashPartitionerNeedsStableHashCodes() {
+        final ShardPartitioner<Object> partitioner = ShardPartitioner.hash();
+        for (Campus campus : Campus.values()) {
+            assertThat(partitioner.shardOf(campus, 16)).isEqualTo(partitioner.shardOf(campus.name(), 16));
+        }
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> partitioner.shardOf(new Object(), 16));
+    }
+
+    @Test
+    public void givenKeyWithoutStableHashCode_whenQueried_isInNoShard() throws Exception {
+        try (InProcessTransport transport = InProcessTransport.create(3)) {
+            final ShardedTable<Object, String, Integer> table = ShardedTable.create(transport);
+            table.put("Mumbai", "IT", 60);
+            final Object foreign = new Object();
+
+            assertThat(table.get(foreign, "IT")).isNull();
+            assertThat(table.contains(foreign, "IT")).isFalse();
+            assertThat(table.containsRow(foreign)).isFalse();
+            assertThat(table.remove(foreign, "IT")).isNull();
+            assertThat(table.row(foreign)).isEmpty();
+            assertThat(table.getAll(ImmutableMultimap.of(foreign, "IT", "Mumbai", "IT")))
+                    .isEqualTo(ImmutableTable.of("Mumbai", "IT", 60));
+            assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> table.put(foreign, "IT", 1));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package schrader.guava.test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import schrader.guava.collect.TypePartitionedCollection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TypePartitionedCollectionTest {
+
+    private TypePartitionedCollection<Object> mixedTypes() {
+        final TypePartitionedCollection<Object> mixedTypes = TypePartitionedCollection.create();
+        mixedTypes.add(15);
+        mixedTypes.add(12.0);
+        mixedTypes.add("hello");
+        mixedTypes.add(Lists.newArrayList());
+        mixedTypes.add(Maps.newConcurrentMap());
+        mixedTypes.add("world");
+        return mixedTypes;
+    }
+
+    @Test
+    public void filterByObjectType() {
+        final Iterable<String> result = mixedTypes().filter(String.class);
+        assertThat(result).containsExactly("hello", "world");
+    }
+
+    @Test
+    public void filterIncludesSubtypes() {
+        final TypePartitionedCollection<Object> mixedTypes = mixedTypes();
+        assertThat(mixedTypes.filter(Number.class)).containsExactlyInAnyOrder(15, 12.0);
+        assertThat(mixedTypes.filter(List.class)).hasSize(1);
+        assertThat(mixedTypes.filter(Object.class)).hasSize(6);
+        assertThat(mixedTypes.filter(Long.class)).isEmpty();
+        assertThat(mixedTypes.count(CharSequence.class)).isEqualTo(2);
+    }
+
+    @Test
+    public void filterIsALiveView() {
+        final TypePartitionedCollection<Object> mixedTypes = mixedTypes();
+        final Iterable<Number> numbers = mixedTypes.filter(Number.class);
+        assertThat(numbers).hasSize(2);
+        mixedTypes.add(7L);
+        mixedTypes.add(8);
+        assertThat(numbers).containsExactlyInAnyOrder(15, 8, 12.0, 7L);
+        assertThat(mixedTypes).hasSize(8);
+    }
+
+    @Test
+    public void nullIsRejected() {
+        assertThatExceptionOfType(NullPointerException.class)
+                .isThrownBy(() -> TypePartitionedCollection.create().add(null));
+    }
+
+    @Test
+    public void concurrentAppends() throws Exception {
+        final TypePartitionedCollection<Object> events = TypePartitionedCollection.create();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        events.add(thread % 2 == 0 ? (Object) i : (Object) String.valueOf(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(events.size()).isEqualTo(40_000);
+        assertThat(events.count(Integer.class)).isEqualTo(20_000);
+        assertThat(events.filter(String.class).size()).isEqualTo(20_000);
+        assertThat(events.filter(String.class).contains("9999")).isTrue();
+    }
+}